@@ -0,0 +1,224 @@
+package com.github.t1.pomx;
+
+import com.github.t1.xml.Xml;
+import com.github.t1.xml.XmlElement;
+import com.github.t1.xml.XmlNode;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary form of an xml tree: a table of all distinct strings (names, values, texts)
+ * followed by a stream of node records, all numbers written as unsigned varints.
+ */
+class BinaryXml {
+    private static final byte[] MAGIC = {'P', 'X', 'B', '1'};
+
+    private static final int END = 0;
+    private static final int ELEMENT = 1;
+    private static final int TEXT = 2;
+    private static final int COMMENT = 3;
+
+    /** the xml library doesn't expose the dom node it wraps */
+    private static final Field NODE = nodeField();
+
+    private static Field nodeField() {
+        try {
+            Field field = XmlNode.class.getDeclaredField("node");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("unsupported xml library version", e);
+        }
+    }
+
+    static void write(XmlElement xml, OutputStream out) throws IOException {
+        Encoder encoder = new Encoder();
+        try {
+            encoder.node((Node) NODE.get(xml));
+        } catch (IllegalAccessException e) {
+            throw new IOException("can't encode xml", e);
+        }
+        encoder.flushText();
+        encoder.writeTo(out);
+    }
+
+    static Xml read(ByteBuffer buffer, String documentUri) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("not a binary xml");
+        String[] strings = new String[readVarint(buffer)];
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = readString(buffer);
+
+        Document document = newDocument();
+        document.setDocumentURI(documentUri);
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(document);
+        int end = readVarint(buffer) + buffer.position();
+        while (buffer.position() < end) {
+            int op = readVarint(buffer);
+            switch (op) {
+            case ELEMENT:
+                Element element = document.createElement(strings[readVarint(buffer)]);
+                int attributes = readVarint(buffer);
+                for (int a = 0; a < attributes; a++)
+                    element.setAttribute(strings[readVarint(buffer)], strings[readVarint(buffer)]);
+                stack.peek().appendChild(element);
+                stack.push(element);
+                break;
+            case END:
+                stack.pop();
+                break;
+            case TEXT:
+                stack.peek().appendChild(document.createTextNode(strings[readVarint(buffer)]));
+                break;
+            case COMMENT:
+                stack.peek().appendChild(document.createComment(strings[readVarint(buffer)]));
+                break;
+            default:
+                throw new IOException("unknown binary xml node type " + op);
+            }
+        }
+        return new Xml(document);
+    }
+
+    private static Document newDocument() throws IOException {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    static void writeString(OutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static class Encoder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final StringBuilder text = new StringBuilder();
+        private int[] ops = new int[256];
+        private int size;
+
+        private void op(int value) {
+            if (size == ops.length)
+                ops = Arrays.copyOf(ops, size * 2);
+            ops[size++] = value;
+        }
+
+        private void string(String value) {
+            Integer index = strings.get(value);
+            if (index == null)
+                strings.put(value, index = strings.size());
+            op(index);
+        }
+
+        private void flushText() {
+            if (text.length() == 0)
+                return;
+            op(TEXT);
+            string(text.toString());
+            text.setLength(0);
+        }
+
+        /** adjacent text and cdata nodes are merged into one text record */
+        void node(Node node) {
+            switch (node.getNodeType()) {
+            case Node.DOCUMENT_NODE:
+                children(node);
+                break;
+            case Node.ELEMENT_NODE:
+                flushText();
+                op(ELEMENT);
+                string(node.getNodeName());
+                NamedNodeMap attributes = node.getAttributes();
+                op(attributes.getLength());
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    Attr attribute = (Attr) attributes.item(i);
+                    string(attribute.getName());
+                    string(attribute.getValue());
+                }
+                children(node);
+                flushText();
+                op(END);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                text.append(node.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                flushText();
+                op(COMMENT);
+                string(node.getNodeValue());
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                children(node);
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void children(Node node) {
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+                node(child);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(MAGIC);
+            writeVarint(out, strings.size());
+            for (String string : strings.keySet())
+                writeString(out, string);
+            ByteArrayOutputStream nodes = new ByteArrayOutputStream(size * 2);
+            for (int i = 0; i < size; i++)
+                writeVarint(nodes, ops[i]);
+            writeVarint(out, nodes.size());
+            nodes.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.t1.pomx;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.w3c.dom.Document;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The POMs converted in this build, so Maven can build its models directly from the converted trees
+ * instead of from the files. Each tree is handed out only once, as Maven normally reads a POM only once;
+ * later reads get the serialized form. Cleared at the end of the session, so e.g. a maven daemon doesn't keep them.
+ */
+@Component(role = ConvertedPoms.class)
+public class ConvertedPoms {
+    private final Map<Path, Document> documents = new ConcurrentHashMap<>();
+    private final Map<Path, String> serialized = new ConcurrentHashMap<>();
+
+    void put(Path pom, Document document, String xml) {
+        serialized.put(key(pom), xml);
+        documents.put(key(pom), document);
+    }
+
+    /** the converted tree, and drop it, so it can be garbage collected after Maven built the model from it */
+    Optional<Document> takeDocument(Path pom) { return Optional.ofNullable(documents.remove(key(pom))); }
+
+    Optional<String> get(Path pom) { return Optional.ofNullable(serialized.get(key(pom))); }
+
+    void clear() {
+        documents.clear();
+        serialized.clear();
+    }
+
+    private static Path key(Path pom) { return pom.toAbsolutePath().normalize(); }
+}
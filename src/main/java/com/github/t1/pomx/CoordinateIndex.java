@@ -0,0 +1,243 @@
+package com.github.t1.pomx;
+
+import com.github.t1.xml.Xml;
+import com.github.t1.xml.XmlElement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The coordinates used by all <code>pomx.xml</code> files below a root directory, so we can find e.g. the modules
+ * that depend on something, or that still use some version of a plugin, without running Maven.
+ * Only the pomx files themselves are read, i.e. external profiles are not expanded.
+ * The index is stored in the compact {@link BinaryXml} encoding of strings and numbers, memory mapped when loading,
+ * and updated incrementally: only pomx files with a different last modified time or size are read again.
+ */
+class CoordinateIndex {
+    /** change this when the file format or the usages read from a pomx file change */
+    private static final int FORMAT = 2;
+
+    /** directories that never contain source pomx files */
+    private static final List<String> SKIPPED_DIRECTORIES = asList("target", "node_modules");
+
+    private static final List<String> SCOPES = asList("provided", "compile", "runtime", "system", "test");
+
+    enum Kind {
+        /** the coordinates of the module itself */
+        PROJECT,
+        DEPENDENCY,
+        /** an imported bom in the dependency management */
+        MANAGED,
+        /** a build plugin or a dependency of a build plugin */
+        PLUGIN,
+        PROFILE
+    }
+
+    static class Usage implements Comparable<Usage> {
+        final Path module;
+        final Kind kind;
+        final GAV gav;
+
+        Usage(Path module, Kind kind, GAV gav) {
+            this.module = module;
+            this.kind = kind;
+            this.gav = gav;
+        }
+
+        @Override public int compareTo(Usage that) { return toString().compareTo(that.toString()); }
+
+        @Override public boolean equals(Object o) { return o instanceof Usage && toString().equals(o.toString()); }
+
+        @Override public int hashCode() { return toString().hashCode(); }
+
+        @Override public String toString() { return module + "\t" + kind.name().toLowerCase() + "\t" + gav; }
+    }
+
+    private static class Module {
+        final long modified;
+        final long size;
+        final List<Usage> usages;
+
+        Module(long modified, long size, List<Usage> usages) {
+            this.modified = modified;
+            this.size = size;
+            this.usages = usages;
+        }
+    }
+
+
+    private final Path root;
+    private final Path file;
+    /** by the module directory relative to the root */
+    private final Map<Path, Module> modules = new TreeMap<>();
+
+    CoordinateIndex(Path root, Path file) {
+        this.root = root.toAbsolutePath().normalize();
+        this.file = file.toAbsolutePath().normalize();
+        if (Files.isRegularFile(this.file))
+            load();
+    }
+
+    private void load() {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (BinaryXml.readVarint(buffer) != FORMAT)
+                return; // written by a different version, so we build it again
+            int count = BinaryXml.readVarint(buffer);
+            for (int i = 0; i < count; i++) {
+                Path module = root.getFileSystem().getPath(BinaryXml.readString(buffer));
+                long modified = buffer.getLong();
+                long size = buffer.getLong();
+                int usageCount = BinaryXml.readVarint(buffer);
+                List<Usage> usages = new ArrayList<>(usageCount);
+                for (int j = 0; j < usageCount; j++) {
+                    Kind kind = Kind.values()[BinaryXml.readVarint(buffer)];
+                    usages.add(new Usage(module, kind, GAV.split(BinaryXml.readString(buffer))));
+                }
+                modules.put(module, new Module(modified, size, usages));
+            }
+        } catch (IOException | RuntimeException e) {
+            modules.clear(); // a broken index is built again
+        }
+    }
+
+    /** read all new and changed pomx files, and forget the deleted ones; @return the number of pomx files read */
+    int update() {
+        Set<Path> found = new TreeSet<>();
+        int read = 0;
+        for (Path pomx : pomxFiles(root)) {
+            Path module = root.relativize(pomx.getParent());
+            found.add(module);
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(pomx, BasicFileAttributes.class);
+                long modified = attributes.lastModifiedTime().toMillis();
+                Module existing = modules.get(module);
+                if (existing != null && existing.modified == modified && existing.size == attributes.size())
+                    continue;
+                modules.put(module, new Module(modified, attributes.size(), read(module, XmlFiles.load(pomx))));
+                read++;
+            } catch (IOException e) {
+                throw new RuntimeException("can't read " + pomx, e);
+            }
+        }
+        modules.keySet().retainAll(found);
+        return read;
+    }
+
+    /** all <code>pomx.xml</code> files below the root, skipping hidden and build output directories */
+    static List<Path> pomxFiles(Path root) {
+        List<Path> pomxFiles = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    String name = Objects.toString(dir.getFileName(), "");
+                    return (!dir.equals(root) && (name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name)))
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                    if (path.getFileName().toString().equals("pomx.xml"))
+                        pomxFiles.add(path);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("can't scan " + root, e);
+        }
+        return pomxFiles;
+    }
+
+    private static List<Usage> read(Path module, Xml pomx) {
+        List<Usage> usages = new ArrayList<>();
+        pomx.find("/project/*[local-name()='jar' or local-name()='war' or local-name()='pom']")
+            .forEach(packaging -> usages.add(new Usage(module, Kind.PROJECT, GAV.split(packaging.getText()))));
+        pomx.find("dependencies/*").stream()
+            .filter(scope -> SCOPES.contains(scope.getName()))
+            .flatMap(scope -> scope.find("jar|pom").stream())
+            .forEach(dependency -> usages.add(new Usage(module, Kind.DEPENDENCY, GAV.split(dependency.getText()))));
+        pomx.find("dependencies/dependency")
+            .forEach(dependency -> usages.add(new Usage(module, Kind.DEPENDENCY, gav(dependency))));
+        pomx.find("dependencyManagement/pom")
+            .forEach(bom -> usages.add(new Usage(module, Kind.MANAGED, GAV.split(bom.getText()))));
+        pomx.find("dependencyManagement/dependencies/dependency")
+            .forEach(dependency -> usages.add(new Usage(module, Kind.MANAGED, gav(dependency))));
+        for (XmlElement plugin : pomx.find("build/plugins/plugin|build/pluginManagement/plugins/plugin")) {
+            usages.add(new Usage(module, Kind.PLUGIN, plugin.hasId() ? GAV.split(plugin.getAttribute("id"))
+                : gav(plugin, "org.apache.maven.plugins"))); // the default for plugins
+            // also the compact <dependency>g:a:v</dependency>
+            plugin.find("dependencies/*").forEach(dependency -> usages.add(new Usage(module, Kind.PLUGIN,
+                dependency.elements().isEmpty() ? GAV.split(dependency.getText()) : gav(dependency))));
+        }
+        pomx.find("profile")
+            .forEach(profile -> usages.add(new Usage(module, Kind.PROFILE, GAV.split(profile.getText()))));
+        return usages;
+    }
+
+    private static GAV gav(XmlElement element) { return gav(element, ""); }
+
+    private static GAV gav(XmlElement element, String defaultGroupId) {
+        return new GAV(
+            text(element, "groupId").orElse(defaultGroupId),
+            text(element, "artifactId").orElse(""),
+            text(element, "classifier").orElse(null),
+            text(element, "version").orElse(null));
+    }
+
+    private static Optional<String> text(XmlElement element, String name) {
+        return element.getOptionalElement(name).map(XmlElement::getText);
+    }
+
+    /** the usages of the coordinates, optionally only of one kind; without a version, all versions match */
+    List<Usage> usages(GAV query, Kind kind) {
+        return modules.values().stream()
+            .flatMap(module -> module.usages.stream())
+            .filter(usage -> kind == null || usage.kind == kind)
+            .filter(usage -> query.matches(usage.gav))
+            .map(usage -> new Usage(root.resolve(usage.module), usage.kind, usage.gav))
+            .sorted()
+            .collect(toList());
+    }
+
+    void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            LockedFiles.locked(LockedFiles.lockNextTo(file), () -> {
+                LockedFiles.replace(file, out -> {
+                    BinaryXml.writeVarint(out, FORMAT);
+                    BinaryXml.writeVarint(out, modules.size());
+                    for (Map.Entry<Path, Module> entry : modules.entrySet()) {
+                        Module module = entry.getValue();
+                        BinaryXml.writeString(out, entry.getKey().toString());
+                        out.write(ByteBuffer.allocate(2 * Long.BYTES).putLong(module.modified).putLong(module.size).array());
+                        BinaryXml.writeVarint(out, module.usages.size());
+                        for (Usage usage : module.usages) {
+                            BinaryXml.writeVarint(out, usage.kind.ordinal());
+                            BinaryXml.writeString(out, usage.gav.toString());
+                        }
+                    }
+                });
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("can't write coordinate index " + file, e);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.github.t1.pomx;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.ModelParseException;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps a converted POM from its DOM directly to Maven's {@link Model}, so Maven doesn't have to parse it again.
+ * The model classes are generated by Modello, so they are regular enough to map by name, like the
+ * <code>MavenXpp3Reader</code> does: an element sets the property with its name, the children of a list element
+ * are the items, if there is an <code>add</code> method for their name, <code>properties</code> become {@link Properties},
+ * and the untyped elements, e.g. the <code>configuration</code> of plugins, become {@link Xpp3Dom}s.
+ * Texts are trimmed; in strict mode, unknown and duplicate elements fail.
+ */
+class DomModelReader {
+    private static final String MODEL_PACKAGE = Model.class.getPackage().getName();
+
+    private static class Accessors {
+        /** the setters by property name; a String setter wins over an overloaded boolean setter */
+        final Map<String, Method> setters = new HashMap<>();
+        /** the methods that add one item to a list property, by item name */
+        final Map<String, Method> adders = new HashMap<>();
+
+        Accessors(Class<?> type) {
+            for (Method method : type.getMethods()) {
+                if (method.getParameterCount() != 1 || method.getName().length() < 4)
+                    continue;
+                String name = Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4);
+                if (method.getName().startsWith("set") && mappable(method.getParameterTypes()[0]))
+                    setters.merge(name, method, (first, second) ->
+                        (second.getParameterTypes()[0] == String.class) ? second : first);
+                else if (method.getName().startsWith("add"))
+                    adders.put(name, method);
+            }
+        }
+
+        private static boolean mappable(Class<?> type) {
+            return type == String.class || type == boolean.class || type == int.class || type == Properties.class
+                || type == List.class || type == Object.class || type.getName().startsWith(MODEL_PACKAGE + ".");
+        }
+    }
+
+    private static final Map<Class<?>, Accessors> ACCESSORS = new ConcurrentHashMap<>();
+
+    static Model read(Document document, boolean strict) throws ModelParseException {
+        Element project = document.getDocumentElement();
+        if (strict && !project.getTagName().equals("project"))
+            throw new ModelParseException("Expected root element 'project' but found '" + project.getTagName() + "'", -1, -1);
+        Model model = new Model();
+        synchronized (document) { // reading a DOM is not thread safe
+            new DomModelReader(strict).map(project, model);
+        }
+        model.setModelEncoding("UTF-8");
+        return model;
+    }
+
+
+    private final boolean strict;
+
+    private DomModelReader(boolean strict) { this.strict = strict; }
+
+    private void map(Element element, Object target) throws ModelParseException {
+        Accessors accessors = ACCESSORS.computeIfAbsent(target.getClass(), Accessors::new);
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Method setter = accessors.setters.get(camelCase(attributes.item(i).getNodeName()));
+            if (setter != null && setter.getParameterTypes()[0] == String.class)
+                invoke(setter, target, attributes.item(i).getNodeValue().trim());
+        }
+        Set<String> seen = new HashSet<>();
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!(node instanceof Element))
+                continue;
+            Element child = (Element) node;
+            Method setter = accessors.setters.get(child.getTagName());
+            if (setter == null) {
+                unknown(child);
+                continue;
+            }
+            if (strict && !seen.add(child.getTagName()))
+                throw new ModelParseException("Duplicated tag: '" + child.getTagName() + "'", -1, -1);
+            invoke(setter, target, value(child, setter, accessors));
+        }
+    }
+
+    private Object value(Element element, Method setter, Accessors accessors) throws ModelParseException {
+        Class<?> type = setter.getParameterTypes()[0];
+        if (type == String.class)
+            return text(element);
+        if (type == boolean.class)
+            return Boolean.valueOf(text(element));
+        if (type == int.class)
+            return integer(element);
+        if (type == Properties.class)
+            return properties(element);
+        if (type == Object.class)
+            return dom(element);
+        if (type == List.class)
+            return items(element, accessors, itemType(setter));
+        Object value = newInstance(type);
+        map(element, value);
+        return value;
+    }
+
+    /** only the items with an <code>add</code> method for their name and type, e.g. <code>addDependency</code> */
+    private List<Object> items(Element list, Accessors accessors, Type itemType) throws ModelParseException {
+        List<Object> items = new ArrayList<>();
+        for (Node node = list.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!(node instanceof Element))
+                continue;
+            Element item = (Element) node;
+            Method adder = accessors.adders.get(item.getTagName());
+            if (adder == null || !adder.getParameterTypes()[0].equals(itemType)) {
+                unknown(item);
+                continue;
+            }
+            if (itemType == String.class) {
+                items.add(text(item));
+            } else {
+                Object value = newInstance(adder.getParameterTypes()[0]);
+                map(item, value);
+                items.add(value);
+            }
+        }
+        return items;
+    }
+
+    private void unknown(Element element) throws ModelParseException {
+        if (strict)
+            throw new ModelParseException("Unrecognised tag: '" + element.getTagName() + "'", -1, -1);
+    }
+
+    private int integer(Element element) throws ModelParseException {
+        try {
+            return Integer.parseInt(text(element));
+        } catch (NumberFormatException e) {
+            if (strict)
+                throw new ModelParseException("Unable to parse element '" + element.getTagName()
+                    + "', must be an integer", -1, -1, e);
+            return 0;
+        }
+    }
+
+    private static String text(Element element) { return element.getTextContent().trim(); }
+
+    private static Properties properties(Element element) {
+        Properties properties = new Properties();
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+            if (node instanceof Element)
+                properties.put(((Element) node).getTagName(), text((Element) node));
+        return properties;
+    }
+
+    /** like the <code>Xpp3DomBuilder</code> with trimming: non-empty texts only for elements without children */
+    private static Xpp3Dom dom(Element element) {
+        Xpp3Dom dom = new Xpp3Dom(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++)
+            dom.setAttribute(attributes.item(i).getNodeName(), attributes.item(i).getNodeValue());
+        StringBuilder text = new StringBuilder();
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+            if (node instanceof Element)
+                dom.addChild(dom((Element) node));
+            else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE)
+                text.append(node.getNodeValue().trim());
+        if (dom.getChildCount() == 0 && text.length() > 0)
+            dom.setValue(text.toString());
+        return dom;
+    }
+
+    /** e.g. the attribute <code>child.project.url.inherit.append.path</code> */
+    private static String camelCase(String name) {
+        StringBuilder out = new StringBuilder(name.length());
+        boolean upper = false;
+        for (char c : name.toCharArray())
+            if (c == '.') {
+                upper = true;
+            } else {
+                out.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        return out.toString();
+    }
+
+    private static Type itemType(Method setter) {
+        Type type = setter.getGenericParameterTypes()[0];
+        return (type instanceof ParameterizedType) ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+    }
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("can't create " + type.getName(), e);
+        }
+    }
+
+    private static void invoke(Method method, Object target, Object value) {
+        try {
+            method.invoke(target, value);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("can't call " + method, e);
+        }
+    }
+}
@@ -35,11 +35,29 @@ class GAV {
         }
     }
 
+    /** a version range like <code>[1.0,2.0)</code>, or <code>LATEST</code> or <code>RELEASE</code> */
+    boolean hasDynamicVersion() {
+        return version != null
+            && (version.startsWith("[") || version.startsWith("(") || version.equals("LATEST") || version.equals("RELEASE"));
+    }
+
+    boolean isSnapshot() { return version != null && version.endsWith("-SNAPSHOT"); }
+
+    GAV withVersion(String version) { return new GAV(groupId, artifactId, classifier, version); }
+
+    GAV withClassifier(String classifier) { return new GAV(groupId, artifactId, classifier, version); }
+
+    /** this is a query: without a version, all versions match, e.g. <code>com.example:company-profile</code> */
+    boolean matches(GAV gav) {
+        return groupId.equals(gav.groupId) && artifactId.equals(gav.artifactId)
+            && (version == null || version.equals(gav.version));
+    }
+
     Path asPath(String type) {
         return Paths.get(groupId.replace('.', '/'))
                     .resolve(artifactId)
                     .resolve(version)
-                    .resolve(artifactId + "-" + version + "." + type);
+                    .resolve(artifactId + "-" + version + ((classifier == null) ? "" : "-" + classifier) + "." + type);
     }
 
     public String getGroupId() { return groupId; }
@@ -61,6 +79,13 @@ class GAV {
                 Objects.equals(version, gav.version);
     }
 
+    /** the inverse of {@link #split(String)} */
+    @Override public String toString() {
+        return groupId + ":" + artifactId
+            + ((classifier == null) ? "" : ":" + classifier)
+            + ((version == null) ? "" : ":" + version);
+    }
+
     @Override
     public int hashCode() { return Objects.hash(groupId, artifactId, classifier, version); }
 }
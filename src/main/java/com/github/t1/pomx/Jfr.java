@@ -0,0 +1,54 @@
+package com.github.t1.pomx;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Custom Java Flight Recorder events, so the pomx work shows up in recordings.
+ * On JVMs without <code>jdk.jfr</code> (i.e. Java 8 before update 262), these are no-ops;
+ * the event classes in {@link JfrEvents} are only loaded when JFR is available.
+ */
+class Jfr {
+    private static final boolean AVAILABLE = isAvailable();
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Committed explicitly in a <code>finally</code> block, not as a resource: the blocks don't use the span,
+     * so <code>javac -Xlint:try</code> would warn. The events implement this with <code>jdk.jfr.Event.commit()</code>.
+     */
+    interface Span {
+        void commit();
+    }
+
+    interface Resolution extends Span {
+        void resolved(Path path, boolean cacheHit);
+    }
+
+    private static final Span NO_SPAN = () -> {};
+
+    private static final Resolution NO_RESOLUTION = new Resolution() {
+        @Override public void resolved(Path path, boolean cacheHit) {}
+
+        @Override public void commit() {}
+    };
+
+
+    /** the conversion of a <code>pomx.xml</code> into a <code>pom.xml</code> */
+    static Span convert(Path pomx) { return AVAILABLE ? JfrEvents.convert(pomx) : NO_SPAN; }
+
+    /** the resolution of an external profile, incl. the lookup in the {@link ProfileCache} */
+    static Resolution resolve(GAV gav, String type) { return AVAILABLE ? JfrEvents.resolve(gav, type) : NO_RESOLUTION; }
+
+    /** the expansion of the external profiles of one document; nested profiles have a higher depth */
+    static Span expandExternalProfiles(URI source, int depth, int profiles) {
+        return AVAILABLE ? JfrEvents.expandExternalProfiles(source, depth, profiles) : NO_SPAN;
+    }
+}
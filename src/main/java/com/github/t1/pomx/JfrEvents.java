@@ -0,0 +1,72 @@
+package com.github.t1.pomx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/** The JFR event types; only to be used through {@link Jfr}, which checks that JFR is available */
+class JfrEvents {
+    static Jfr.Span convert(Path pomx) {
+        ConvertEvent event = new ConvertEvent();
+        event.pomx = pomx.toString();
+        event.begin();
+        return event;
+    }
+
+    static Jfr.Resolution resolve(GAV gav, String type) {
+        ResolveEvent event = new ResolveEvent();
+        event.gav = gav.getGroupId() + ":" + gav.getArtifactId() + ":" + gav.getVersion();
+        event.type = type;
+        event.begin();
+        return event;
+    }
+
+    static Jfr.Span expandExternalProfiles(URI source, int depth, int profiles) {
+        ExpandExternalProfilesEvent event = new ExpandExternalProfilesEvent();
+        event.source = source.toString();
+        event.depth = depth;
+        event.profiles = profiles;
+        event.begin();
+        return event;
+    }
+
+
+    @Name("com.github.t1.pomx.Convert")
+    @Label("Convert pomx")
+    @Category("pomx")
+    @Description("Convert a pomx.xml into a pom.xml")
+    static class ConvertEvent extends Event implements Jfr.Span {
+        @Label("pomx") String pomx;
+    }
+
+    @Name("com.github.t1.pomx.Resolve")
+    @Label("Resolve Profile")
+    @Category("pomx")
+    @Description("Resolve an external profile and look it up in the profile cache")
+    static class ResolveEvent extends Event implements Jfr.Resolution {
+        @Label("GAV") String gav;
+        @Label("Type") String type;
+        @Label("Path") String path;
+        @Label("Cache Hit") boolean cacheHit;
+
+        @Override public void resolved(Path path, boolean cacheHit) {
+            this.path = path.toString();
+            this.cacheHit = cacheHit;
+        }
+    }
+
+    @Name("com.github.t1.pomx.ExpandExternalProfiles")
+    @Label("Expand External Profiles")
+    @Category("pomx")
+    @Description("Expand the external profiles of a pomx or of a profile; nested profiles have a higher depth")
+    static class ExpandExternalProfilesEvent extends Event implements Jfr.Span {
+        @Label("Source") String source;
+        @Label("Depth") int depth;
+        @Label("Profiles") int profiles;
+    }
+}
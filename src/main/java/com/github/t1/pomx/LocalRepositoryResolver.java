@@ -0,0 +1,101 @@
+package com.github.t1.pomx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Resolves artifacts directly from the file layout of a chain of local repositories, i.e. without Aether;
+ * e.g. for the {@link Main} CLI, or to find profiles before the {@link PomxModelLocator} falls back to Aether.
+ * The repositories are probed in order, so e.g. a small writable repository can come before a large read-only one.
+ */
+class LocalRepositoryResolver implements Resolver {
+    /** the system property <code>maven.repo.local</code>, or <code>~/.m2/repository</code> */
+    static final Path DEFAULT = Paths.get(System.getProperty("maven.repo.local",
+        Paths.get(System.getProperty("user.home")).resolve(".m2/repository").toString()));
+
+    /**
+     * The {@link #DEFAULT} repository, followed by the read-only repositories in the system property
+     * <code>pomx.repositories</code>, separated by the path separator, e.g. <code>/opt/m2/base:/opt/m2/tools</code>
+     */
+    static LocalRepositoryResolver fromSystemProperties() {
+        List<Path> repositories = new ArrayList<>();
+        repositories.add(DEFAULT);
+        String chain = System.getProperty("pomx.repositories", "");
+        for (String repository : chain.split(File.pathSeparator))
+            if (!repository.trim().isEmpty())
+                repositories.add(Paths.get(repository.trim()));
+        return new LocalRepositoryResolver(repositories);
+    }
+
+
+    private final List<Path> repositories;
+    /** the resolved dynamic versions; within one run, a version never changes */
+    private final Map<GAV, String> versions = new ConcurrentHashMap<>();
+
+    LocalRepositoryResolver(Path repository) { this(singletonList(repository)); }
+
+    LocalRepositoryResolver(List<Path> repositories) { this.repositories = repositories; }
+
+    List<Path> repositories() { return repositories; }
+
+    /** the first repository that contains the artifact; only probes files */
+    Optional<Path> find(GAV gav, String type) {
+        Path relative = gav.asPath(type);
+        return repositories.stream().map(repository -> repository.resolve(relative)).filter(Files::isRegularFile).findFirst();
+    }
+
+    @Override public Path resolve(GAV gav, String type) {
+        return find(gav, type).orElseThrow(() ->
+            new RuntimeException("can't find " + gav + " (" + type + ") in local repositories " + repositories));
+    }
+
+    /**
+     * The highest version in the version directories of all repositories that contain the artifact;
+     * the versions listed in the <code>maven-metadata-*.xml</code> files may not have been downloaded.
+     */
+    @Override public GAV resolveVersion(GAV gav) {
+        return gav.withVersion(versions.computeIfAbsent(gav, this::readVersion));
+    }
+
+    private String readVersion(GAV gav) {
+        List<String> found = new ArrayList<>();
+        for (Path repository : repositories) {
+            Path directory = repository.resolve(gav.getGroupId().replace('.', '/')).resolve(gav.getArtifactId());
+            if (!Files.isDirectory(directory))
+                continue;
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+                for (Path entry : entries)
+                    if (containsArtifact(entry, gav.getArtifactId() + "-" + entry.getFileName() + "."))
+                        found.add(entry.getFileName().toString());
+            } catch (IOException e) {
+                throw new RuntimeException("can't list versions in " + directory, e);
+            }
+        }
+        return found.stream()
+            .filter(version -> Versions.matches(gav.getVersion(), version))
+            .max(Versions.ORDER)
+            .orElseThrow(() -> new RuntimeException("no version in " + gav.getVersion() + " found for "
+                + gav.getGroupId() + ":" + gav.getArtifactId() + " in local repositories " + repositories));
+    }
+
+    /** failed downloads leave version directories with only <code>.lastUpdated</code> files */
+    private static boolean containsArtifact(Path directory, String prefix) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, file -> {
+            String name = file.getFileName().toString();
+            return name.startsWith(prefix) && !name.endsWith(".lastUpdated");
+        })) {
+            return files.iterator().hasNext();
+        }
+    }
+}
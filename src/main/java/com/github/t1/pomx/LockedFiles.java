@@ -0,0 +1,126 @@
+package com.github.t1.pomx;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Coordinates the writers of a file, even in different processes, e.g. a build and an IDE import in the same checkout.
+ * The lock is a {@link FileLock} on a lock file, and files are replaced atomically by renaming a temporary file,
+ * so readers never see a torn file. File locks are held by the whole JVM,
+ * so threads are coordinated with an additional lock per lock file, which is dropped when no thread needs it anymore.
+ * <p>
+ * The lock files are empty and stay where they are: deleting one while another process waits for its lock
+ * would let a third process lock a new file with the same name. They can be deleted while no build is running.
+ */
+class LockedFiles {
+    private static final ConcurrentMap<Path, ReentrantLock> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+    interface Action<T> {
+        T run() throws IOException;
+    }
+
+    interface Output {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /** a hidden <code>.{name}.lock</code> file next to the file, for files in our own directories, e.g. caches */
+    static Path lockNextTo(Path file) {
+        return file.toAbsolutePath().normalize().resolveSibling("." + file.getFileName() + ".lock");
+    }
+
+    /**
+     * A lock file in the temp directory, for files in the directories of the user, e.g. the generated POMs,
+     * so we don't litter the checkout. If processes don't share the temp directory, the files are still replaced atomically.
+     */
+    static Path lockInTemp(Path file) {
+        String path = file.toAbsolutePath().normalize().toString();
+        return Paths.get(System.getProperty("java.io.tmpdir"), "pomx-locks",
+            RemoteCache.key(path.getBytes(UTF_8)) + ".lock");
+    }
+
+    /** run the action while holding the lock */
+    static <T> T locked(Path lockFile, Action<T> action) throws IOException {
+        ReentrantLock threadLock = lockThread(lockFile);
+        try {
+            if (threadLock.getHoldCount() > 1)
+                return action.run(); // the file lock is already held
+            Files.createDirectories(lockFile.getParent());
+            try (FileChannel channel = FileChannel.open(lockFile, CREATE, WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        } finally {
+            // the last thread removes the lock, so they don't pile up; it's only removed while it's held
+            if (threadLock.getHoldCount() == 1 && !threadLock.hasQueuedThreads())
+                THREAD_LOCKS.remove(lockFile, threadLock);
+            threadLock.unlock();
+        }
+    }
+
+    /** a thread that got a lock just before it was removed retries with the new lock */
+    private static ReentrantLock lockThread(Path lockFile) {
+        while (true) {
+            ReentrantLock threadLock = THREAD_LOCKS.computeIfAbsent(lockFile, path -> new ReentrantLock());
+            threadLock.lock();
+            if (THREAD_LOCKS.get(lockFile) == threadLock)
+                return threadLock;
+            threadLock.unlock();
+        }
+    }
+
+    /** for tests */
+    static boolean isThreadLocked(Path lockFile) { return THREAD_LOCKS.containsKey(lockFile); }
+
+    /**
+     * Atomically replace the file; the caller should hold the lock.
+     * A symbolic link stays a link: the file it points to is replaced, and that keeps its POSIX permissions.
+     */
+    static void replace(Path file, Output output) throws IOException {
+        Path target = Files.exists(file) ? file.toRealPath() : file;
+        if (Files.isDirectory(target))
+            throw new IOException(file + " is a directory");
+        Path temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(temp, CREATE_NEW, WRITE)))) {
+                output.writeTo(out);
+            }
+            if (Files.exists(target) && Files.getFileAttributeView(target, PosixFileAttributeView.class) != null)
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            Files.move(temp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /** lock and replace a file in the directories of the user */
+    static void write(Path file, Output output) throws IOException {
+        locked(lockInTemp(file), () -> {
+            replace(file, output);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,230 @@
+package com.github.t1.pomx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Command line tools for pomx, running without Maven, e.g. <code>java -jar pomx.jar affected com.example:profile</code>.
+ * External profiles are resolved directly from the local repository.
+ */
+public class Main {
+    private static final String USAGE = ""
+        + "usage: java -jar pomx.jar <command> [options] <arguments>\n"
+        + "commands:\n"
+        + "  convert <module>      convert the pomx.xml in the module directory to a pom.xml, e.g. in a git hook\n"
+        + "  affected <profile>    list the modules using the profile (groupId:artifactId[:version]), incl. nested\n"
+        + "  reconvert <profile>   convert the pomx.xml of all modules using the profile again\n"
+        + "  expand <profile>      write the profile with the nested profiles expanded, to be published with the\n"
+        + "                        classifier expanded (default: at the path of the profile in the first repository)\n"
+        + "  uses <gav>            list the modules using the coordinates (groupId:artifactId[:version])\n"
+        + "  graph <root>          print the dependencies between the modules below the root directory as json,\n"
+        + "                        with a build order and the critical path\n"
+        + "options:\n"
+        + "  --index <file>        the profile index (default: the system property pomx.profile-index;\n"
+        + "                        optional for convert)\n"
+        + "  --output <file>       where expand writes the expanded profile\n"
+        + "  --repository <dirs>   the local repositories, separated by the path separator; only the first has to be\n"
+        + "                        writable (default: the system property maven.repo.local or ~/.m2/repository,\n"
+        + "                        followed by the system property pomx.repositories)\n"
+        + "  --memory-bound <MiB>  release input trees and keep at most this size of profile trees in memory\n"
+        + "                        (default: the system property pomx.memory-bound)\n"
+        + "  --root <dir>          the root directory of the pomx files for uses (default: the current directory)\n"
+        + "  --coordinates <file>  the coordinate index for uses (default: target/pomx-coordinates in the root)\n"
+        + "  --kind <kind>         only uses as project, dependency, managed, plugin, or profile\n"
+        + "  --weights <file>      the build time of modules for graph, as properties groupId:artifactId=seconds\n"
+        + "  --profiles true       also resolve the external profiles for graph, if they add module dependencies\n";
+
+    public static void main(String... args) { System.exit(run(System.out, args)); }
+
+    static int run(PrintStream out, String... args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+            if (args[i].startsWith("--") && i + 1 < args.length)
+                options.put(args[i].substring(2), args[++i]);
+            else
+                arguments.add(args[i]);
+        if (arguments.size() != 2) {
+            out.print(USAGE);
+            return 1;
+        }
+        Main main = new Main(out, options);
+        switch (arguments.get(0)) {
+        case "convert":
+            return main.convert(Paths.get(arguments.get(1)));
+        case "affected":
+            return main.affected(GAV.split(arguments.get(1)));
+        case "reconvert":
+            return main.reconvert(GAV.split(arguments.get(1)));
+        case "expand":
+            return main.expand(GAV.split(arguments.get(1)));
+        case "graph":
+            return main.graph(Paths.get(arguments.get(1)));
+        case "uses":
+            return main.uses(GAV.split(arguments.get(1)));
+        default:
+            out.print(USAGE);
+            return 1;
+        }
+    }
+
+
+    private final PrintStream out;
+    private final Map<String, String> options;
+
+    private Main(PrintStream out, Map<String, String> options) {
+        this.out = out;
+        this.options = options;
+    }
+
+    private ProfileIndex index() {
+        ProfileIndex index = optionalIndex();
+        if (!index.isEnabled())
+            throw new IllegalArgumentException("no profile index: use --index or -Dpomx.profile-index");
+        return index;
+    }
+
+    private ProfileIndex optionalIndex() {
+        String file = options.getOrDefault("index", System.getProperty("pomx.profile-index"));
+        return new ProfileIndex((file == null) ? null : Paths.get(file));
+    }
+
+    private LocalRepositoryResolver resolver() {
+        String repository = options.get("repository");
+        if (repository == null)
+            return LocalRepositoryResolver.fromSystemProperties();
+        return new LocalRepositoryResolver(Stream.of(repository.split(File.pathSeparator)).map(Paths::get).collect(toList()));
+    }
+
+    private int affected(GAV profile) {
+        index().modulesUsing(profile).forEach(out::println);
+        return 0;
+    }
+
+    private MemoryBound memoryBound() {
+        String maxMiB = options.get("memory-bound");
+        return (maxMiB == null) ? new MemoryBound() : new MemoryBound(Long.parseLong(maxMiB));
+    }
+
+    /** with the system property <code>pomx.inline-profiles</code>, like the extension */
+    private static ProjectObjectModel read(Path pomx, Resolver resolver) {
+        ProjectObjectModel model = ProjectObjectModel.readFrom(pomx, resolver);
+        return Boolean.getBoolean("pomx.inline-profiles") ? model.inliningProfiles() : model;
+    }
+
+    private int convert(Path module) {
+        ProfileIndex index = optionalIndex();
+        ProjectObjectModel model = read(module.resolve("pomx.xml"), resolver())
+            .withProfileCache(ProfileCache.fromSystemProperties());
+        model.writeTo(module.resolve("pom.xml"));
+        index.record(module, model.getExpandedProfiles());
+        index.save();
+        out.println("converted " + module);
+        return 0;
+    }
+
+    private int reconvert(GAV profile) {
+        ProfileIndex index = index();
+        Resolver resolver = resolver();
+        MemoryBound memoryBound = memoryBound();
+        ProfileCache profileCache = memoryBound.apply(ProfileCache.fromSystemProperties());
+        Set<Path> modules = index.modulesUsing(profile);
+        for (Path module : modules) {
+            Path pomx = module.resolve("pomx.xml");
+            if (!Files.exists(pomx)) {
+                out.println("skip " + module + ": no pomx.xml");
+                continue;
+            }
+            ProjectObjectModel model = memoryBound.apply(read(pomx, resolver)).withProfileCache(profileCache);
+            model.writeTo(module.resolve("pom.xml"));
+            index.record(module, model.getExpandedProfiles());
+            memoryBound.sample();
+            out.println("converted " + module);
+        }
+        index.save();
+        if (memoryBound.isEnabled())
+            out.println(memoryBound.report());
+        return 0;
+    }
+
+    private int expand(GAV profile) {
+        LocalRepositoryResolver resolver = resolver();
+        Path path = resolver.resolve(profile, "xml");
+        String output = options.get("output");
+        Path target = (output == null) ? expandedTarget(profile, resolver) : Paths.get(output);
+        ProjectObjectModel model = ProjectObjectModel.readFrom(path, resolver);
+        model.writeExpandedTo(target);
+        out.println("expanded " + profile + " with " + model.getExpandedProfiles().size() + " nested profiles to " + target);
+        return 0;
+    }
+
+    /** in the first repository, as the profile may be in a read-only one */
+    private static Path expandedTarget(GAV profile, LocalRepositoryResolver resolver) {
+        Path target = resolver.repositories().get(0).toAbsolutePath()
+            .resolve(profile.withClassifier(ProjectObjectModel.EXPANDED_CLASSIFIER).asPath("xml"));
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("can't write " + target + ": use --output", e);
+        }
+        if (!Files.isWritable(target.getParent()))
+            throw new IllegalArgumentException("can't write " + target + ": use --output");
+        return target;
+    }
+
+    private int uses(GAV gav) {
+        Path root = Paths.get(options.getOrDefault("root", "."));
+        String file = options.get("coordinates");
+        CoordinateIndex index = new CoordinateIndex(root,
+            (file == null) ? root.resolve("target/pomx-coordinates") : Paths.get(file));
+        if (index.update() > 0)
+            index.save();
+        String kind = options.get("kind");
+        index.usages(gav, (kind == null) ? null : CoordinateIndex.Kind.valueOf(kind.toUpperCase()))
+            .forEach(out::println);
+        return 0;
+    }
+
+    private int graph(Path root) {
+        Resolver resolver = Boolean.parseBoolean(options.get("profiles")) ? resolver() : null;
+        String file = options.get("weights");
+        Map<String, Double> weights = (file == null) ? new HashMap<>() : weights(Paths.get(file));
+        ModuleGraph graph = ModuleGraph.scan(root, resolver);
+        graph.warnings().forEach(warning -> System.err.println("warning: " + warning)); // the out is only the json
+        out.print(graph.toJson(root, weights));
+        return 0;
+    }
+
+    /** lines <code>groupId:artifactId=seconds</code>; not as {@link java.util.Properties}, where a <code>:</code> separates the value */
+    private static Map<String, Double> weights(Path file) {
+        Map<String, Double> weights = new HashMap<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (IOException e) {
+            throw new RuntimeException("can't read weights " + file, e);
+        }
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            int separator = line.lastIndexOf('=');
+            if (separator < 0)
+                throw new IllegalArgumentException("expected groupId:artifactId=weight in " + file + ": " + line);
+            weights.put(line.substring(0, separator).trim(), Double.valueOf(line.substring(separator + 1).trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.t1.pomx;
+
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A mode to convert very large reactors in small containers, enabled with the system property
+ * <code>pomx.memory-bound</code>: the size (in MiB) of the expanded profile trees kept in memory.
+ * Input trees are released as soon as they are copied, the profile trees are kept in the size-bounded {@link ProfileCache.Trees},
+ * and the heap retained after garbage collections is sampled after every conversion, so the peak can be reported.
+ */
+@Component(role = MemoryBound.class)
+public class MemoryBound {
+    private static final long MIB = 1024 * 1024;
+
+    private final ProfileCache.Trees trees;
+    private final AtomicLong peakRetained = new AtomicLong();
+
+    public MemoryBound() { this(Long.getLong("pomx.memory-bound", 0)); }
+
+    MemoryBound(long maxMiB) { this.trees = (maxMiB <= 0) ? null : new ProfileCache.Trees(maxMiB * MIB); }
+
+    boolean isEnabled() { return trees != null; }
+
+    ProfileCache apply(ProfileCache profileCache) { return isEnabled() ? profileCache.withMemory(trees) : profileCache; }
+
+    ProjectObjectModel apply(ProjectObjectModel model) { return isEnabled() ? model.releasingInput() : model; }
+
+    /** record the heap retained after the last garbage collections */
+    void sample() {
+        if (!isEnabled())
+            return;
+        long retained = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null)
+                retained += usage.getUsed();
+        }
+        peakRetained.accumulateAndGet(retained, Math::max);
+    }
+
+    long peakRetained() { return peakRetained.get(); }
+
+    String report() {
+        return "peak retained heap " + peakRetained() / MIB + " MiB; "
+            + trees.size() + " profile trees with " + trees.bytes() / 1024 + " KiB in memory";
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.t1.pomx;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * The dependencies between the modules below a root directory, e.g. for a build scheduler that distributes the modules
+ * to several machines. It's read from the <code>pomx.xml</code> files in parallel, without Maven,
+ * and normally without resolving the external profiles, as they rarely add dependencies on modules of the same reactor.
+ * The modules are identified by <code>groupId:artifactId</code>; dependencies on other artifacts are ignored.
+ * The coordinates can use the <code>project.*</code> and the own properties of the module;
+ * others can't be resolved without Maven, so they are reported as {@link #warnings()}.
+ */
+class ModuleGraph {
+    static class Module {
+        final String id;
+        final Path directory;
+        /** the ids of the modules this module needs, sorted */
+        final Set<String> dependsOn;
+
+        Module(String id, Path directory, Set<String> dependsOn) {
+            this.id = id;
+            this.directory = directory;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private static class Scanned {
+        final Path directory;
+        final GAV gav;
+        final List<GAV> buildDependencies;
+
+        Scanned(Path pomx, Resolver resolver) {
+            ProjectObjectModel model = ProjectObjectModel.readFrom(pomx, resolver);
+            this.directory = pomx.getParent();
+            this.gav = model.getGav();
+            this.buildDependencies = model.getBuildDependencies(resolver != null);
+        }
+    }
+
+    /** read all pomx files below the root; a null resolver doesn't resolve external profiles */
+    static ModuleGraph scan(Path root, Resolver resolver) {
+        List<Scanned> scanned = CoordinateIndex.pomxFiles(root).parallelStream()
+            .map(pomx -> new Scanned(pomx, resolver))
+            .collect(toList());
+        Map<String, Module> modules = new TreeMap<>();
+        List<String> warnings = new ArrayList<>();
+        for (Scanned module : scanned) {
+            Module existing = modules.put(id(module.gav), new Module(id(module.gav), module.directory, new TreeSet<>()));
+            if (existing != null)
+                throw new RuntimeException("duplicate module " + existing.id + " in " + existing.directory
+                    + " and " + module.directory);
+        }
+        for (Scanned module : scanned) {
+            module.buildDependencies.stream()
+                .filter(dependency -> id(dependency).contains("${"))
+                .forEach(dependency -> warnings.add("unresolved property in " + dependency + " of " + id(module.gav)));
+            module.buildDependencies.stream()
+                .map(ModuleGraph::id)
+                .filter(modules::containsKey)
+                .filter(dependency -> !dependency.equals(id(module.gav)))
+                .forEach(modules.get(id(module.gav)).dependsOn::add);
+        }
+        return new ModuleGraph(modules, warnings);
+    }
+
+    private static String id(GAV gav) { return gav.getGroupId() + ":" + gav.getArtifactId(); }
+
+
+    /** by id */
+    private final Map<String, Module> modules;
+    private final List<String> warnings;
+
+    private ModuleGraph(Map<String, Module> modules, List<String> warnings) {
+        this.modules = modules;
+        this.warnings = warnings;
+    }
+
+    Map<String, Module> modules() { return Collections.unmodifiableMap(modules); }
+
+    /** the dependencies that may be on modules, but we can't tell, as their coordinates contain unknown properties */
+    List<String> warnings() { return Collections.unmodifiableList(warnings); }
+
+    /** every module after the modules it depends on; otherwise sorted by id, so the order is stable */
+    List<Module> topologicalOrder() {
+        Map<String, Integer> missing = modules.values().stream()
+            .collect(toMap(module -> module.id, module -> module.dependsOn.size(), Integer::sum, TreeMap::new));
+        Map<String, List<Module>> dependents = new HashMap<>();
+        modules.values().forEach(module -> module.dependsOn
+            .forEach(dependency -> dependents.computeIfAbsent(dependency, id -> new ArrayList<>()).add(module)));
+        TreeSet<String> ready = new TreeSet<>();
+        missing.forEach((id, count) -> {
+            if (count == 0)
+                ready.add(id);
+        });
+        List<Module> order = new ArrayList<>(modules.size());
+        while (!ready.isEmpty()) {
+            Module module = modules.get(ready.pollFirst());
+            order.add(module);
+            for (Module dependent : dependents.getOrDefault(module.id, Collections.emptyList()))
+                if (missing.merge(dependent.id, -1, Integer::sum) == 0)
+                    ready.add(dependent.id);
+        }
+        if (order.size() < modules.size())
+            throw new RuntimeException("cycle between the modules " + missing.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0).map(Map.Entry::getKey).collect(toList()));
+        return order;
+    }
+
+    /**
+     * The chain of modules with the highest total weight, i.e. the minimum build time with unlimited machines.
+     * Modules without a weight (e.g. the build time from an earlier build) weigh 1.
+     */
+    List<Module> criticalPath(Map<String, Double> weights) {
+        Map<String, Double> finish = new HashMap<>();
+        Map<String, Module> previous = new HashMap<>();
+        Module last = null;
+        for (Module module : topologicalOrder()) {
+            double start = 0;
+            for (String dependency : module.dependsOn)
+                if (finish.get(dependency) > start) {
+                    start = finish.get(dependency);
+                    previous.put(module.id, modules.get(dependency));
+                }
+            finish.put(module.id, start + weights.getOrDefault(module.id, 1.0));
+            if (last == null || finish.get(module.id) > finish.get(last.id))
+                last = module;
+        }
+        List<Module> path = new ArrayList<>();
+        for (Module module = last; module != null; module = previous.get(module.id))
+            path.add(0, module);
+        return path;
+    }
+
+    String toJson(Path root, Map<String, Double> weights) {
+        List<Module> order = topologicalOrder();
+        List<Module> criticalPath = criticalPath(weights);
+        Map<String, Object> json = new LinkedHashMap<>();
+        List<Object> modules = new ArrayList<>();
+        for (Module module : order) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", module.id);
+            entry.put("path", root.toAbsolutePath().normalize().relativize(module.directory.toAbsolutePath().normalize()).toString());
+            entry.put("dependsOn", new ArrayList<>(module.dependsOn));
+            entry.put("weight", weights.getOrDefault(module.id, 1.0));
+            modules.add(entry);
+        }
+        json.put("modules", modules);
+        json.put("order", order.stream().map(module -> module.id).collect(toList()));
+        Map<String, Object> critical = new LinkedHashMap<>();
+        critical.put("weight", criticalPath.stream().mapToDouble(module -> weights.getOrDefault(module.id, 1.0)).sum());
+        critical.put("modules", criticalPath.stream().map(module -> module.id).collect(toList()));
+        json.put("criticalPath", critical);
+        StringBuilder out = new StringBuilder();
+        write(json, out, "");
+        return out.append('\n').toString();
+    }
+
+    private static void write(Object value, StringBuilder out, String indent) {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.append("{");
+            String separator = "\n";
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.append(separator).append(indent).append("  ");
+                string(entry.getKey().toString(), out);
+                out.append(": ");
+                write(entry.getValue(), out, indent + "  ");
+                separator = ",\n";
+            }
+            out.append(map.isEmpty() ? "}" : "\n" + indent + "}");
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            boolean simple = list.stream().noneMatch(item -> item instanceof Map);
+            out.append("[");
+            for (int i = 0; i < list.size(); i++) {
+                out.append((i == 0) ? "" : ",").append(simple ? (i == 0 ? "" : " ") : "\n" + indent + "  ");
+                write(list.get(i), out, indent + "  ");
+            }
+            out.append((simple || list.isEmpty()) ? "]" : "\n" + indent + "]");
+        } else if (value instanceof Double) {
+            double number = (Double) value;
+            out.append((number == Math.rint(number)) ? Long.toString((long) number) : Double.toString(number));
+        } else {
+            string(value.toString(), out);
+        }
+    }
+
+    private static void string(String value, StringBuilder out) {
+        out.append('"');
+        for (char c : value.toCharArray())
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < ' ')
+                out.append(String.format("\\u%04x", (int) c));
+            else
+                out.append(c);
+        out.append('"');
+    }
+}
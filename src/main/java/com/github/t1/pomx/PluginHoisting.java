@@ -0,0 +1,204 @@
+package com.github.t1.pomx;
+
+import com.github.t1.xml.Xml;
+import com.github.t1.xml.XmlElement;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Moves the build plugins that several modules of a reactor configure identically into the <code>pluginManagement</code>
+ * of the root, so the generated POMs of the modules only reference them by <code>groupId</code> and <code>artifactId</code>,
+ * and Maven has smaller models to build and interpolate. Plugins are identical, if their structural hash is:
+ * the names, attributes, and trimmed texts of all elements, without comments and whitespace.
+ * Only modules with the root as <code>parent</code> inherit its <code>pluginManagement</code>, so only they are changed.
+ * <p>
+ * The managed configuration is merged into every declaration of the plugin below the root, incl. the modules
+ * of intermediate parents, and into the plugins that the lifecycle binds without a declaration. So a plugin is only
+ * hoisted, if all modules below the root (but the ones with <code>pom</code> packaging) declare it identically,
+ * and neither the root nor any module or profile declares or manages it differently.
+ */
+class PluginHoisting {
+    static final PluginHoisting NONE = new PluginHoisting(null, emptySet(), emptyMap());
+
+    private static final int MIN_MODULES = 2;
+
+    /** all declarations that get the configuration from the <code>pluginManagement</code> of an ancestor */
+    private static final String DECLARATIONS = "build/plugins/plugin|build/pluginManagement/plugins/plugin"
+        + "|profiles/profile/build/plugins/plugin|profiles/profile/build/pluginManagement/plugins/plugin";
+
+    private static class Candidate {
+        final String hash;
+        final XmlElement plugin;
+        final Set<Path> modules = new TreeSet<>();
+
+        Candidate(String hash, XmlElement plugin) {
+            this.hash = hash;
+            this.plugin = plugin;
+        }
+    }
+
+    /** read the <code>pomx.xml</code> files of the root and all modules below it */
+    static PluginHoisting scan(Path rootPomx) {
+        Xml root = XmlFiles.load(rootPomx);
+        Path directory = rootPomx.toAbsolutePath().normalize().getParent();
+        // the coordinates don't need any resolution
+        GAV gav = ProjectObjectModel.from(root, new LocalRepositoryResolver(emptyList())).getGav();
+        Map<Path, Xml> descendants = new TreeMap<>();
+        for (List<Path> level = modules(directory, root); !level.isEmpty(); ) {
+            Map<Path, Xml> loaded = level.parallelStream()
+                .filter(module -> !module.equals(directory) && !descendants.containsKey(module))
+                .collect(toMap(module -> module, module -> XmlFiles.load(module.resolve("pomx.xml")),
+                    (first, second) -> first, TreeMap::new));
+            descendants.putAll(loaded);
+            level = loaded.entrySet().stream()
+                .flatMap(module -> modules(module.getKey(), module.getValue()).stream())
+                .collect(toList());
+        }
+        Map<Path, Xml> modules = new TreeMap<>(descendants);
+        modules.values().removeIf(module -> !inherits(module, gav));
+
+        Map<String, Set<String>> hashes = new HashMap<>();
+        Stream.concat(Stream.of(root), descendants.values().stream()).forEach(xml -> xml.find(DECLARATIONS)
+            .forEach(plugin -> hashes.computeIfAbsent(key(plugin), key -> new TreeSet<>()).add(hash(plugin))));
+        List<Set<String>> declared = descendants.values().stream()
+            .filter(xml -> !xml.getOptionalElement("pom").isPresent())
+            .map(xml -> xml.find("build/plugins/plugin").stream().map(PluginHoisting::key).collect(toSet()))
+            .collect(toList());
+        Map<String, Candidate> candidates = new HashMap<>();
+        modules.forEach((module, xml) -> xml.find("build/plugins/plugin").forEach(plugin -> candidates
+            .computeIfAbsent(hash(plugin), hash -> new Candidate(hash, plugin)).modules.add(module)));
+        Set<String> managed = root.find(DECLARATIONS).stream().map(PluginHoisting::key).collect(toSet());
+        Map<String, Candidate> hoisted = candidates.values().stream()
+            .filter(candidate -> candidate.modules.size() >= MIN_MODULES)
+            .filter(candidate -> !managed.contains(key(candidate.plugin))) // the root's own configuration wins
+            .filter(candidate -> hashes.get(key(candidate.plugin)).size() == 1)
+            .filter(candidate -> declared.stream().allMatch(plugins -> plugins.contains(key(candidate.plugin))))
+            .collect(toMap(candidate -> key(candidate.plugin), candidate -> candidate,
+                (first, second) -> first, TreeMap::new));
+        return new PluginHoisting(directory, modules.keySet(), hoisted);
+    }
+
+    private static List<Path> modules(Path directory, Xml xml) {
+        return xml.find("modules/module").stream()
+            .map(module -> directory.resolve(module.getText()).normalize())
+            .filter(module -> Files.isRegularFile(module.resolve("pomx.xml")))
+            .collect(toList());
+    }
+
+    private static boolean inherits(Xml module, GAV root) {
+        return module.getOptionalElement("parent")
+            .filter(parent -> text(parent, "groupId").equals(root.getGroupId()))
+            .filter(parent -> text(parent, "artifactId").equals(root.getArtifactId()))
+            .isPresent();
+    }
+
+    /** <code>groupId:artifactId</code> */
+    private static String key(XmlElement plugin) {
+        if (plugin.hasId()) {
+            GAV gav = GAV.split(plugin.getAttribute("id"));
+            return gav.getGroupId() + ":" + gav.getArtifactId();
+        }
+        String groupId = text(plugin, "groupId");
+        return (groupId.isEmpty() ? "org.apache.maven.plugins" : groupId) + ":" + text(plugin, "artifactId");
+    }
+
+    private static String text(XmlElement element, String name) {
+        return element.getOptionalElement(name).map(XmlElement::getText).orElse("").trim();
+    }
+
+    static String hash(XmlElement element) {
+        StringBuilder canonical = new StringBuilder();
+        canonical(XmlFiles.parse(element.toXmlString()).getDocumentElement(), canonical);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(canonical.toString().getBytes(UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void canonical(Element element, StringBuilder out) {
+        out.append('<').append(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < attributes.getLength(); i++)
+            if (!attributes.item(i).getNodeName().startsWith("xmlns"))
+                names.add(attributes.item(i).getNodeName());
+        names.sort(null);
+        for (String name : names)
+            out.append(' ').append(name).append("=\"").append(element.getAttribute(name)).append('"');
+        out.append('>');
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+            if (child instanceof Element)
+                canonical((Element) child, out);
+            else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE)
+                out.append(child.getNodeValue().trim());
+        out.append("</").append(element.getTagName()).append('>');
+    }
+
+
+    private final Path root;
+    private final Set<Path> modules;
+    /** by <code>groupId:artifactId</code> */
+    private final Map<String, Candidate> hoisted;
+
+    private PluginHoisting(Path root, Set<Path> modules, Map<String, Candidate> hoisted) {
+        this.root = root;
+        this.modules = modules;
+        this.hoisted = hoisted;
+    }
+
+    boolean isRoot(Path directory) { return directory.equals(root); }
+
+    /** the directories of the modules that inherit from the root */
+    Set<Path> modules() { return modules; }
+
+    /** the <code>groupId:artifactId</code> of the hoisted plugins */
+    Set<String> plugins() { return hoisted.keySet(); }
+
+    /**
+     * Add the hoisted plugins to the <code>pluginManagement</code> of the root, or reduce the identical plugins
+     * of a module to a reference. Runs on the pomx format, i.e. before the plugins are expanded.
+     */
+    void apply(Path pomx, Xml out) {
+        if (hoisted.isEmpty())
+            return;
+        Path directory = pomx.toAbsolutePath().normalize().getParent();
+        if (directory.equals(root)) {
+            XmlElement plugins = out.getOrCreateElement("build")
+                .getOrCreateElement("pluginManagement").getOrCreateElement("plugins");
+            hoisted.values().forEach(candidate -> plugins.addNode(candidate.plugin));
+        } else if (modules.contains(directory)) {
+            out.getOptionalElement("build/plugins").ifPresent(plugins -> plugins.elements().stream()
+                .filter(plugin -> plugin.getName().equals("plugin"))
+                .filter(plugin -> hoisted.containsKey(key(plugin)) && hoisted.get(key(plugin)).hash.equals(hash(plugin)))
+                .forEach(plugin -> {
+                    plugins.addElement("plugin", XmlElement.before(plugin)).setAttribute("id", key(plugin));
+                    plugin.remove();
+                }));
+        }
+    }
+}
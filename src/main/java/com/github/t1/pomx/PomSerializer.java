@@ -0,0 +1,153 @@
+package com.github.t1.pomx;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the generated POM directly to a {@link Writer}, producing the same output as the
+ * {@link org.w3c.dom.ls.LSSerializer} of JDK 8 used by {@link com.github.t1.xml.XmlElement#toXmlString()},
+ * but without its setup costs and intermediate copies, and independent of the JDK version.
+ */
+class PomSerializer {
+    static String toString(Document document) {
+        StringWriter writer = new StringWriter(8 * 1024);
+        try {
+            write(document, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    static void write(Document document, Writer writer) throws IOException {
+        PomSerializer serializer = new PomSerializer(writer);
+        writer.write("<?xml version=\"");
+        writer.write(document.getXmlVersion());
+        writer.write("\" encoding=\"UTF-8\"?>\n");
+        serializer.element(document.getDocumentElement());
+        writer.write('\n');
+    }
+
+
+    private final Writer out;
+
+    private PomSerializer(Writer out) { this.out = out; }
+
+    private void node(Node node) throws IOException {
+        switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            element((Element) node);
+            break;
+        case Node.TEXT_NODE:
+            escape(node.getNodeValue(), false);
+            break;
+        case Node.CDATA_SECTION_NODE:
+            out.write("<![CDATA[");
+            out.write(node.getNodeValue());
+            out.write("]]>");
+            break;
+        case Node.COMMENT_NODE:
+            out.write("<!--");
+            out.write(node.getNodeValue());
+            out.write("-->");
+            break;
+        case Node.PROCESSING_INSTRUCTION_NODE:
+            out.write("<?");
+            out.write(node.getNodeName());
+            String data = node.getNodeValue();
+            if (data != null && !data.isEmpty()) {
+                out.write(' ');
+                out.write(data);
+            }
+            out.write("?>");
+            break;
+        case Node.ENTITY_REFERENCE_NODE:
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+                node(child);
+            break;
+        default:
+            throw new IllegalArgumentException("unsupported node type " + node.getNodeType() + ": " + node);
+        }
+    }
+
+    private void element(Element element) throws IOException {
+        out.write('<');
+        out.write(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            out.write(' ');
+            out.write(attribute.getNodeName());
+            out.write("=\"");
+            escape(attribute.getNodeValue(), true);
+            out.write('"');
+        }
+        if (!element.hasChildNodes()) {
+            out.write("/>");
+            return;
+        }
+        out.write('>');
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+            node(child);
+        out.write("</");
+        out.write(element.getTagName());
+        out.write('>');
+    }
+
+    /** writes the unescaped runs of the string in one call each */
+    private void escape(String string, boolean attribute) throws IOException {
+        int start = 0;
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            String replacement;
+            switch (c) {
+            case '<':
+                replacement = "&lt;";
+                break;
+            case '&':
+                replacement = "&amp;";
+                break;
+            case '>':
+                replacement = attribute ? null : "&gt;";
+                break;
+            case '"':
+                replacement = attribute ? "&quot;" : null;
+                break;
+            case '\t':
+                replacement = attribute ? "&#x9;" : null;
+                break;
+            case '\n':
+                replacement = attribute ? "&#xa;" : null;
+                break;
+            case '\r':
+                replacement = "&#xd;";
+                break;
+            default:
+                replacement = null;
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    replacement = "&#x" + Integer.toHexString(Character.toCodePoint(c, string.charAt(i + 1))) + ";";
+                    out.write(string, start, i - start);
+                    out.write(replacement);
+                    start = ++i + 1;
+                    continue;
+                } else if (c < 0x20 || Character.isSurrogate(c) || c == 0xFFFE || c == 0xFFFF) {
+                    throw new IllegalArgumentException("The character '" + c + "' is an invalid XML character");
+                }
+            }
+            if (replacement != null) {
+                out.write(string, start, i - start);
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        out.write(string, start, length - start);
+    }
+}
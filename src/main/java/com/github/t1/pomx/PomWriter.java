@@ -0,0 +1,79 @@
+package com.github.t1.pomx;
+
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes the generated <code>pom.xml</code> files. With the system property <code>pomx.write=async</code>,
+ * existing files are overwritten by a background thread, so slow file systems don't delay the build;
+ * new files are still written synchronously, as Maven checks that module POMs exist.
+ * Pending writes are flushed after the projects are read and before the JVM exits.
+ */
+@Component(role = PomWriter.class)
+public class PomWriter {
+    private final boolean async;
+    private final Map<Path, String> pending = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private volatile RuntimeException failure;
+
+    public PomWriter() { this("async".equals(System.getProperty("pomx.write"))); }
+
+    PomWriter(boolean async) { this.async = async; }
+
+    void write(Path pom, String xml) {
+        if (!async || !Files.exists(pom)) {
+            XmlFiles.write(xml, pom);
+            return;
+        }
+        // only the first of several pending writes to the same file has to be scheduled; it writes the latest xml
+        if (pending.put(pom, xml) == null)
+            executor().execute(() -> {
+                try {
+                    XmlFiles.write(pending.remove(pom), pom);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            });
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pomx-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "pomx-writer-flush"));
+        }
+        return executor;
+    }
+
+    /** wait for all pending writes to finish and throw the last failure, if any */
+    void flush() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = this.executor;
+        }
+        if (executor != null) {
+            try {
+                executor.submit(() -> {}).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        RuntimeException failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw failure;
+        }
+    }
+}
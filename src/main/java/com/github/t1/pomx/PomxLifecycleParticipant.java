@@ -0,0 +1,49 @@
+package com.github.t1.pomx;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.component.annotations.*;
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.File;
+
+import static com.github.t1.pomx.PomxModelLocator.CONSUMER_POM;
+
+/**
+ * Makes sure that all generated <code>pom.xml</code> files and the {@link ProfileIndex} are on disk
+ * before the first mojo runs, and that the next build in the same JVM resolves version ranges of external profiles again
+ * and doesn't keep the {@link ConvertedPoms}.
+ * Also installs and deploys the consumer POMs, if <code>pomx.consumer-pom</code> is set (not for the <code>pom</code> packaging),
+ * and reports the memory used in the {@link MemoryBound} mode.
+ */
+@Component(role = AbstractMavenLifecycleParticipant.class, hint = "pomx")
+public class PomxLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+    @Requirement Logger log;
+    @Requirement PomWriter pomWriter;
+    @Requirement VersionCache versionCache;
+    @Requirement ConvertedPoms convertedPoms;
+    @Requirement ProfileIndex profileIndex;
+    @Requirement MemoryBound memoryBound;
+    boolean consumerPom = Boolean.getBoolean("pomx.consumer-pom");
+
+    @Override public void afterProjectsRead(MavenSession session) {
+        pomWriter.flush();
+        profileIndex.save();
+        if (consumerPom)
+            for (MavenProject project : session.getProjects()) {
+                File consumer = new File(project.getBasedir(), CONSUMER_POM);
+                // parents and BOMs don't have a consumer POM, but there may be one left from an older version
+                if (!"pom".equals(project.getPackaging()) && consumer.isFile()
+                    && new File(project.getBasedir(), "pomx.xml").isFile())
+                    project.setPomFile(consumer); // the file that the install and deploy plugins take
+            }
+        if (memoryBound.isEnabled())
+            log.info("pomx " + memoryBound.report());
+    }
+
+    @Override public void afterSessionEnd(MavenSession session) {
+        versionCache.endBuild();
+        convertedPoms.clear();
+    }
+}
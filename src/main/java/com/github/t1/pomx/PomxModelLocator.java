@@ -10,31 +10,182 @@ import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.resolution.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 
 @Component(role = ModelLocator.class)
 public class PomxModelLocator implements ModelLocator {
-    static final Path REPOSITORY = Paths.get(System.getProperty("user.home")).resolve(".m2/repository");
+    /** the writable local repository for Aether, see {@link LocalRepositoryResolver#DEFAULT} */
+    static final Path REPOSITORY = LocalRepositoryResolver.DEFAULT;
+    /** next to the <code>pom.xml</code>, if <code>pomx.consumer-pom</code> is set */
+    static final String CONSUMER_POM = ".consumer-pom.xml";
 
     @Requirement Logger log;
     @Requirement RepositorySystem repositorySystem;
+    @Requirement ConvertedPoms convertedPoms;
+    @Requirement PomWriter pomWriter;
+    @Requirement VersionCache versionCache;
+    @Requirement ProfileIndex profileIndex;
+    @Requirement MemoryBound memoryBound;
+    /** probed before Aether, so profiles already in a local repository don't cause any resolution work */
+    LocalRepositoryResolver localRepositories = LocalRepositoryResolver.fromSystemProperties();
+    ProfileCache profileCache = ProfileCache.fromSystemProperties();
+    RemoteCache remoteCache = RemoteCache.fromSystemProperties();
+    boolean validate = Boolean.getBoolean("pomx.validate");
+    boolean consumerPom = Boolean.getBoolean("pomx.consumer-pom");
+    boolean inlineProfiles = Boolean.getBoolean("pomx.inline-profiles");
+    boolean hoistPlugins = Boolean.getBoolean("pomx.hoist-plugins");
+    Resolver resolver = new Resolver() {
+        @Override public Path resolve(GAV gav, String type) { return PomxModelLocator.this.resolve(gav, type); }
+
+        @Override public List<Path> resolveAll(Collection<GAV> gavs, String type) {
+            return PomxModelLocator.this.resolveAll(gavs, type);
+        }
+
+        @Override public GAV resolveVersion(GAV gav) {
+            return gav.withVersion(versionCache.get(REPOSITORY, gav, PomxModelLocator.this::readVersion));
+        }
+    };
+
+    /**
+     * The conversions currently running, by directory. Different modules (e.g. with <code>mvn -T</code>)
+     * convert in parallel, while concurrent requests for the same module wait for the running conversion.
+     */
+    private final ConcurrentMap<Path, CompletableFuture<Void>> conversions = new ConcurrentHashMap<>();
+
+    /** by the directory of the root and its modules; Maven reads the root before the modules */
+    private final ConcurrentMap<Path, PluginHoisting> pluginHoistings = new ConcurrentHashMap<>();
 
     @Override public File locatePom(File dir) {
         Path pom = dir.toPath().resolve("pom.xml");
         Path pomx = dir.toPath().resolve("pomx.xml");
         if (Files.exists(pomx)) {
-            log.info("convert " + pomx + " to " + pom);
-            ProjectObjectModel.readFrom(pomx, this::resolve).writeTo(pom);
+            Path key = dir.toPath().toAbsolutePath().normalize();
+            CompletableFuture<Void> conversion = new CompletableFuture<>();
+            CompletableFuture<Void> running = conversions.putIfAbsent(key, conversion);
+            if (running != null)
+                await(running);
+            else
+                try {
+                    convert(pomx, pom);
+                    conversion.complete(null);
+                } catch (RuntimeException e) {
+                    conversion.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    conversions.remove(key, conversion);
+                }
         }
         return pom.toFile();
     }
 
+    private void convert(Path pomx, Path pom) {
+        log.info("convert " + pomx + " to " + pom);
+        Jfr.Span span = Jfr.convert(pomx);
+        try {
+            ProjectObjectModel model = memoryBound.apply(ProjectObjectModel.readFrom(pomx, resolver, validate))
+                .withProfileCache(memoryBound.apply(profileCache.withRemote(remoteCache)));
+            if (inlineProfiles)
+                model.inliningProfiles();
+            PluginHoisting pluginHoisting = hoistPlugins ? pluginHoisting(pomx, model) : PluginHoisting.NONE;
+            model.withPluginHoisting(pluginHoisting);
+            // the hoisted plugins depend on the other modules, which the key doesn't cover
+            String key = (pluginHoisting == PluginHoisting.NONE) ? remoteKey(pomx, model) : null;
+            Optional<RemoteCache.Expanded> remote = (key == null) ? Optional.empty() : remoteCache.getExpanded(key);
+            String xml = remote.map(entry -> UTF_8.decode(entry.content).toString()).orElseGet(() -> {
+                String converted = model.asString();
+                if (key != null)
+                    remoteCache.putExpanded(key, model.getExpandedProfiles(), converted.getBytes(UTF_8));
+                return converted;
+            });
+            // a remote hit is not expanded, but the entry contains the expanded profiles
+            profileIndex.record(pomx.getParent(), remote.isPresent() ? remote.get().profiles : model.getExpandedProfiles());
+            convertedPoms.put(pom, remote.isPresent() ? XmlFiles.parse(xml) : model.asDocument(), xml);
+            pomWriter.write(pom, xml);
+            if (consumerPom)
+                consumerPom(model, key, remote.isPresent())
+                    .ifPresent(consumer -> pomWriter.write(pom.resolveSibling(CONSUMER_POM), consumer));
+        } finally {
+            span.commit();
+        }
+        memoryBound.sample();
+    }
+
+    /**
+     * The hoisting of the root of the reactor, if this is a module of it;
+     * or scan the modules (again, e.g. in a maven daemon), if this is the root.
+     */
+    private PluginHoisting pluginHoisting(Path pomx, ProjectObjectModel model) {
+        Path directory = pomx.toAbsolutePath().normalize().getParent();
+        PluginHoisting existing = pluginHoistings.get(directory);
+        if (existing != null && !existing.isRoot(directory))
+            return existing;
+        if (model.getModules().isEmpty())
+            return PluginHoisting.NONE;
+        PluginHoisting scanned = PluginHoisting.scan(pomx);
+        pluginHoistings.put(directory, scanned);
+        scanned.modules().forEach(module -> pluginHoistings.putIfAbsent(module, scanned));
+        if (!scanned.plugins().isEmpty())
+            log.info("hoist plugins " + scanned.plugins() + " of " + scanned.modules().size() + " modules into " + pomx);
+        return scanned;
+    }
+
+    /**
+     * The key covers the pomx, the path in the generated warning, and the mode, but not the profile contents,
+     * so only pomx files that reference released profiles (incl. the nested profiles) are cached remotely,
+     * see {@link RemoteCache#isShareable(Collection)}. The nested profiles are checked when putting and getting.
+     */
+    /**
+     * The consumer POM is shared through the remote cache as well, incl. that there is none, so a remote hit
+     * doesn't have to expand the model; with an empty entry for projects that don't have a consumer POM.
+     */
+    private Optional<String> consumerPom(ProjectObjectModel model, String key, boolean remoteHit) {
+        String consumerKey = (key == null) ? null : RemoteCache.key(CONSUMER_POM.getBytes(UTF_8), key.getBytes(UTF_8));
+        Optional<RemoteCache.Expanded> remote = remoteHit ? remoteCache.getExpanded(consumerKey) : Optional.empty();
+        String consumer = remote.map(entry -> UTF_8.decode(entry.content).toString()).orElseGet(() -> {
+            String converted = model.hasConsumerPom() ? model.asConsumerString() : "";
+            if (consumerKey != null)
+                remoteCache.putExpanded(consumerKey, model.getExpandedProfiles(), converted.getBytes(UTF_8));
+            return converted;
+        });
+        return consumer.isEmpty() ? Optional.empty() : Optional.of(consumer);
+    }
+
+    private String remoteKey(Path pomx, ProjectObjectModel model) {
+        if (!remoteCache.isEnabled() || !RemoteCache.isShareable(model.getProfiles()))
+            return null;
+        try {
+            Path source = Paths.get(System.getProperty("user.dir")).relativize(pomx.toAbsolutePath());
+            return RemoteCache.key((inlineProfiles ? "pom-inline" : "pom").getBytes(UTF_8),
+                source.toString().getBytes(UTF_8), Files.readAllBytes(pomx));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void await(CompletableFuture<Void> conversion) {
+        try {
+            conversion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
 
     private Path resolve(GAV gav, String type) {
+        Optional<Path> local = localRepositories.find(gav, type);
+        if (local.isPresent())
+            return local.get();
         RepositorySystemSession session = newRepositorySystemSession();
-        Artifact artifact = new DefaultArtifact(gav.getGroupId(), gav.getArtifactId(), type, gav.getVersion());
-        ArtifactRequest request = new ArtifactRequest();
-        request.setArtifact(artifact);
+        ArtifactRequest request = artifactRequest(gav, type);
         // RemoteRepository central = new RemoteRepository.Builder("central", "default", remoteRepository).build();
         // request.addRepository(central);
         try {
@@ -45,6 +196,60 @@ public class PomxModelLocator implements ModelLocator {
         }
     }
 
+    /**
+     * The artifacts found in the local repositories, and the others in one call to Aether,
+     * so the metadata lookups are shared and the transfers run in parallel
+     */
+    private List<Path> resolveAll(Collection<GAV> gavs, String type) {
+        List<Path> paths = new ArrayList<>(gavs.size());
+        List<ArtifactRequest> requests = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (GAV gav : gavs) {
+            Optional<Path> local = localRepositories.find(gav, type);
+            if (!local.isPresent()) {
+                missing.add(paths.size());
+                requests.add(artifactRequest(gav, type));
+            }
+            paths.add(local.orElse(null));
+        }
+        if (requests.isEmpty())
+            return paths;
+        RepositorySystemSession session = newRepositorySystemSession();
+        try {
+            List<ArtifactResult> results = repositorySystem.resolveArtifacts(session, requests);
+            for (int i = 0; i < results.size(); i++)
+                paths.set(missing.get(i), results.get(i).getArtifact().getFile().toPath());
+            return paths;
+        } catch (ArtifactResolutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** reads the repository metadata; only called by the {@link VersionCache} */
+    private String readVersion(GAV gav) {
+        RepositorySystemSession session = newRepositorySystemSession();
+        Artifact artifact = new DefaultArtifact(gav.getGroupId(), gav.getArtifactId(), "xml", gav.getVersion());
+        try {
+            if (gav.getVersion().equals("LATEST") || gav.getVersion().equals("RELEASE"))
+                return repositorySystem.resolveVersion(session, new VersionRequest(artifact, emptyList(), null)).getVersion();
+            VersionRangeRequest request = new VersionRangeRequest(artifact, emptyList(), null);
+            VersionRangeResult range = repositorySystem.resolveVersionRange(session, request);
+            if (range.getHighestVersion() == null)
+                throw new RuntimeException("no version in " + gav.getVersion()
+                    + " found for " + gav.getGroupId() + ":" + gav.getArtifactId());
+            return range.getHighestVersion().toString();
+        } catch (VersionResolutionException | VersionRangeResolutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ArtifactRequest artifactRequest(GAV gav, String type) {
+        Artifact artifact = new DefaultArtifact(gav.getGroupId(), gav.getArtifactId(), type, gav.getVersion());
+        ArtifactRequest request = new ArtifactRequest();
+        request.setArtifact(artifact);
+        return request;
+    }
+
     private DefaultRepositorySystemSession newRepositorySystemSession() {
         DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
 
@@ -0,0 +1,76 @@
+package com.github.t1.pomx;
+
+import org.apache.maven.building.Source;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.ModelProcessor;
+import org.apache.maven.model.io.DefaultModelReader;
+import org.apache.maven.model.io.ModelReader;
+import org.codehaus.plexus.component.annotations.*;
+import org.w3c.dom.Document;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Hands Maven the model of a converted POM built directly from the converted tree by the {@link DomModelReader},
+ * so the <code>pom.xml</code> written by the {@link PomxModelLocator} doesn't have to be read back and parsed.
+ */
+@Component(role = ModelReader.class)
+public class PomxModelReader implements ModelReader {
+    private final ModelReader delegate = new DefaultModelReader();
+
+    @Requirement ConvertedPoms convertedPoms;
+
+    @Override public Model read(File input, Map<String, ?> options) throws IOException {
+        Optional<Model> converted = converted(input.toPath(), options);
+        if (!converted.isPresent())
+            return delegate.read(input, options);
+        converted.get().setPomFile(input);
+        return converted.get();
+    }
+
+    @Override public Model read(Reader input, Map<String, ?> options) throws IOException {
+        Optional<Model> converted = converted(options);
+        if (!converted.isPresent())
+            return delegate.read(input, options);
+        input.close();
+        return converted.get();
+    }
+
+    @Override public Model read(InputStream input, Map<String, ?> options) throws IOException {
+        Optional<Model> converted = converted(options);
+        if (!converted.isPresent())
+            return delegate.read(input, options);
+        input.close();
+        return converted.get();
+    }
+
+    /** the model builder passes the source of the stream in the options */
+    private Optional<Model> converted(Map<String, ?> options) throws IOException {
+        Object source = (options == null) ? null : options.get(ModelProcessor.SOURCE);
+        if (!(source instanceof Source))
+            return Optional.empty();
+        String location = ((Source) source).getLocation();
+        if (location == null || !location.endsWith("pom.xml"))
+            return Optional.empty();
+        return converted(Paths.get(location), options);
+    }
+
+    /** from the converted tree the first time, and from the serialized form when Maven reads the POM again */
+    private Optional<Model> converted(Path pom, Map<String, ?> options) throws IOException {
+        Optional<Document> document = convertedPoms.takeDocument(pom);
+        if (document.isPresent())
+            return Optional.of(DomModelReader.read(document.get(), isStrict(options)));
+        Optional<String> xml = convertedPoms.get(pom);
+        if (xml.isPresent())
+            return Optional.of(delegate.read(new StringReader(xml.get()), options));
+        return Optional.empty();
+    }
+
+    /** like the {@link DefaultModelReader}: strict, unless the option is false */
+    private static boolean isStrict(Map<String, ?> options) {
+        Object value = (options == null) ? null : options.get(IS_STRICT);
+        return value == null || Boolean.parseBoolean(value.toString());
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.t1.pomx;
+
+import com.github.t1.xml.Xml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads pomx files while validating them against the <code>pomx-5.0.0.xsd</code> in the same parse pass.
+ * The schema is compiled only once and shared, as {@link Schema}s are thread-safe.
+ * Files in other namespaces (e.g. plain POMs) are loaded without validation.
+ */
+class PomxSchema {
+    static final String NAMESPACE = "urn:xsd:maven:pomx:5.0.0";
+
+    private static class Holder {
+        private static final Schema SCHEMA = compile();
+
+        private static Schema compile() {
+            try {
+                return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                    .newSchema(PomxSchema.class.getResource("/schemas/pomx-5.0.0.xsd"));
+            } catch (SAXException e) {
+                throw new IllegalStateException("can't compile pomx schema", e);
+            }
+        }
+    }
+
+    static Schema schema() { return Holder.SCHEMA; }
+
+    static Xml load(Path path, InputStream stream) {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+            XMLReader reader = factory.newSAXParser().getXMLReader();
+            DomBuilder builder = new DomBuilder(path.toUri().toString());
+            reader.setContentHandler(new Router(builder));
+            reader.setProperty("http://xml.org/sax/properties/lexical-handler", builder);
+            reader.setErrorHandler(builder);
+            InputSource source = new InputSource(stream);
+            source.setSystemId(path.toUri().toString());
+            reader.parse(source);
+            return new Xml(builder.document);
+        } catch (SAXParseException e) {
+            throw new RuntimeException("invalid pomx " + path + ":" + e.getLineNumber() + ":" + e.getColumnNumber()
+                + ": " + e.getMessage(), e);
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            throw new RuntimeException("can't load " + path, e);
+        }
+    }
+
+    /**
+     * Decides on the root element, if the events go through the validator or directly to the dom builder.
+     * The builder always gets the original attributes, i.e. including the <code>xmlns</code> declarations
+     * and without defaults added by the schema.
+     */
+    private static class Router extends XMLFilterImpl {
+        private final DomBuilder builder;
+        private final List<String[]> prefixMappings = new ArrayList<>();
+        private Locator locator;
+        private boolean started;
+
+        private Router(DomBuilder builder) {
+            this.builder = builder;
+            setContentHandler(builder);
+        }
+
+        @Override public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+            super.setDocumentLocator(locator);
+        }
+
+        @Override public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            if (!started)
+                prefixMappings.add(new String[]{prefix, uri});
+            super.startPrefixMapping(prefix, uri);
+        }
+
+        @Override public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            if (!started) {
+                started = true;
+                if (NAMESPACE.equals(uri))
+                    validate();
+            }
+            builder.attributes = atts;
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        private void validate() throws SAXException {
+            ValidatorHandler validator = schema().newValidatorHandler();
+            validator.setErrorHandler(builder);
+            validator.setContentHandler(builder);
+            setContentHandler(validator);
+            if (locator != null)
+                validator.setDocumentLocator(locator);
+            validator.startDocument();
+            for (String[] mapping : prefixMappings)
+                validator.startPrefixMapping(mapping[0], mapping[1]);
+        }
+    }
+
+    private static class DomBuilder extends DefaultHandler2 {
+        private final Document document;
+        private Node current;
+        private Attributes attributes;
+        private boolean cdata;
+
+        private DomBuilder(String uri) throws ParserConfigurationException {
+            this.document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            this.document.setDocumentURI(uri);
+            this.current = document;
+        }
+
+        @Override public void startPrefixMapping(String prefix, String uri) {}
+
+        @Override public void startElement(String uri, String localName, String qName, Attributes validated) {
+            Element element = document.createElement(qName);
+            for (int i = 0; i < attributes.getLength(); i++)
+                element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+            current.appendChild(element);
+            current = element;
+        }
+
+        @Override public void endElement(String uri, String localName, String qName) { current = current.getParentNode(); }
+
+        @Override public void characters(char[] ch, int start, int length) {
+            String text = new String(ch, start, length);
+            Node last = current.getLastChild();
+            if (cdata)
+                current.appendChild(document.createCDATASection(text));
+            else if (last != null && last.getNodeType() == Node.TEXT_NODE)
+                ((Text) last).appendData(text); // like the DocumentBuilder, keep adjacent text in one node
+            else
+                current.appendChild(document.createTextNode(text));
+        }
+
+        @Override public void ignorableWhitespace(char[] ch, int start, int length) { characters(ch, start, length); }
+
+        @Override public void comment(char[] ch, int start, int length) {
+            current.appendChild(document.createComment(new String(ch, start, length)));
+        }
+
+        @Override public void processingInstruction(String target, String data) {
+            current.appendChild(document.createProcessingInstruction(target, data));
+        }
+
+        @Override public void startCDATA() { cdata = true; }
+
+        @Override public void endCDATA() { cdata = false; }
+
+        @Override public void error(SAXParseException e) throws SAXException { throw e; }
+
+        @Override public void fatalError(SAXParseException e) throws SAXException { throw e; }
+    }
+}
@@ -0,0 +1,407 @@
+package com.github.t1.pomx;
+
+import com.github.t1.xml.Xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.singletonList;
+
+/**
+ * Stores the expanded tree of external profiles in the {@link BinaryXml} format,
+ * together with the content hashes of all files it was expanded from (the profile itself and all nested profiles),
+ * so a stale entry is detected when any of them changes.
+ */
+class ProfileCache {
+    static final String SUFFIX = ".pomxb";
+
+    /** doesn't cache anything */
+    static final ProfileCache NONE = new ProfileCache(null);
+
+    /** stores the cache file next to the resolved profile, i.e. normally in the local repository */
+    static final ProfileCache NEXT_TO_PROFILE = new ProfileCache(null) {
+        @Override Path location(GAV gav, Path profile) { return profile.resolveSibling(profile.getFileName() + SUFFIX); }
+    };
+
+    static ProfileCache in(Path directory) { return new ProfileCache(directory); }
+
+    /** from the system property <code>pomx.profile-cache</code>: <code>none</code> (the default), <code>repository</code>, or a directory */
+    static ProfileCache fromSystemProperties() {
+        String value = System.getProperty("pomx.profile-cache", "none");
+        switch (value) {
+        case "none":
+            return NONE;
+        case "repository":
+            return NEXT_TO_PROFILE;
+        default:
+            return in(Paths.get(value));
+        }
+    }
+
+    /** also look up released profiles in the remote cache, and store them there */
+    ProfileCache withRemote(RemoteCache remote) { return remote.isEnabled() ? new Remote(this, remote) : this; }
+
+    /** first look up the profiles in the trees in memory, and keep them there */
+    ProfileCache withMemory(Trees trees) { return new Memory(this, trees); }
+
+    static class Expanded {
+        final List<Path> sources;
+        /** the nested profiles, recursively */
+        final List<GAV> profiles;
+        final Xml xml;
+
+        Expanded(List<Path> sources, List<GAV> profiles, Xml xml) {
+            this.sources = sources;
+            this.profiles = profiles;
+            this.xml = xml;
+        }
+
+        /**
+         * A nested profile with a version range, <code>LATEST</code>, or <code>RELEASE</code> may resolve
+         * to a newly installed version, which the hashes or timestamps of the sources don't detect.
+         */
+        boolean isCacheable() { return profiles.stream().noneMatch(GAV::hasDynamicVersion); }
+    }
+
+
+    private final Path directory;
+
+    private ProfileCache(Path directory) { this.directory = directory; }
+
+    Path location(GAV gav, Path profile) {
+        return (directory == null) ? null : directory.resolve(gav.asPath("xml" + SUFFIX));
+    }
+
+    Optional<Expanded> load(GAV gav, Path profile) {
+        Path location = location(gav, profile);
+        if (location == null || !Files.isRegularFile(location))
+            return Optional.empty();
+        try (FileChannel channel = FileChannel.open(location, READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = BinaryXml.readVarint(buffer);
+            List<Path> sources = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Path source = Paths.get(BinaryXml.readString(buffer));
+                byte[] hash = new byte[BinaryXml.readVarint(buffer)];
+                buffer.get(hash);
+                if (!Files.isRegularFile(source) || !Arrays.equals(hash, hash(source)))
+                    return Optional.empty();
+                sources.add(source);
+            }
+            int profileCount = BinaryXml.readVarint(buffer);
+            List<GAV> profiles = new ArrayList<>(profileCount);
+            for (int i = 0; i < profileCount; i++)
+                profiles.add(GAV.split(BinaryXml.readString(buffer)));
+            return Optional.of(new Expanded(sources, profiles, BinaryXml.read(buffer, profile.toUri().toString())))
+                .filter(Expanded::isCacheable);
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty(); // a broken cache entry is just a cache miss
+        }
+    }
+
+    /**
+     * Load the entry, or expand and store it. Other threads and processes that need the same entry
+     * wait for the expansion, instead of expanding it again, see {@link LockedFiles}.
+     */
+    Expanded expand(GAV gav, Path profile, Supplier<Expanded> expand) {
+        Path location = location(gav, profile);
+        if (location != null)
+            try {
+                return LockedFiles.locked(LockedFiles.lockNextTo(location), () -> load(gav, profile)
+                    .orElseGet(() -> expandAndStore(gav, profile, expand)));
+            } catch (IOException e) {
+                // we can't lock, e.g. in a read-only repository, so we have to expand it ourselves
+            }
+        return expandAndStore(gav, profile, expand);
+    }
+
+    private Expanded expandAndStore(GAV gav, Path profile, Supplier<Expanded> expand) {
+        Expanded expanded = expand.get();
+        store(gav, profile, expanded);
+        return expanded;
+    }
+
+    void store(GAV gav, Path profile, Expanded expanded) {
+        Path location = location(gav, profile);
+        if (location == null || !expanded.isCacheable())
+            return;
+        try {
+            Files.createDirectories(location.getParent());
+            LockedFiles.locked(LockedFiles.lockNextTo(location), () -> {
+                LockedFiles.replace(location, out -> write(expanded, out));
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            // the cache is only an optimization, e.g. the repository may be read-only
+        }
+    }
+
+    private static void write(Expanded expanded, OutputStream out) throws IOException {
+        BinaryXml.writeVarint(out, expanded.sources.size());
+        for (Path source : expanded.sources) {
+            BinaryXml.writeString(out, source.toAbsolutePath().toString());
+            byte[] hash = hash(source);
+            BinaryXml.writeVarint(out, hash.length);
+            out.write(hash);
+        }
+        BinaryXml.writeVarint(out, expanded.profiles.size());
+        for (GAV nested : expanded.profiles)
+            BinaryXml.writeString(out, nested.toString());
+        BinaryXml.write(expanded.xml, out);
+    }
+
+    /**
+     * Remote entries are keyed only by the GAV, and they don't contain the (machine specific) source paths,
+     * so only released profiles are shared, and only if all nested profiles are released with fixed versions, too:
+     * then none of them change, see {@link RemoteCache#isShareable(java.util.Collection)}.
+     */
+    private static class Remote extends ProfileCache {
+        private final ProfileCache local;
+        private final RemoteCache remote;
+
+        private Remote(ProfileCache local, RemoteCache remote) {
+            super(null);
+            this.local = local;
+            this.remote = remote;
+        }
+
+        private static String key(GAV gav) {
+            return RemoteCache.key("profile".getBytes(UTF_8), (gav.getGroupId() + ":" + gav.getArtifactId()
+                + ":" + gav.getClassifier() + ":" + gav.getVersion()).getBytes(UTF_8));
+        }
+
+        @Override Path location(GAV gav, Path profile) { return local.location(gav, profile); }
+
+        @Override Optional<Expanded> load(GAV gav, Path profile) {
+            Optional<Expanded> cached = local.load(gav, profile);
+            if (cached.isPresent() || !RemoteCache.isShareable(singletonList(gav)))
+                return cached;
+            return remote.getExpanded(key(gav)).flatMap(entry -> {
+                try {
+                    Expanded expanded = new Expanded(singletonList(profile), entry.profiles,
+                        BinaryXml.read(entry.content, profile.toUri().toString()));
+                    local.store(gav, profile, expanded);
+                    return Optional.of(expanded);
+                } catch (IOException | RuntimeException e) {
+                    return Optional.empty(); // a broken remote entry is just a cache miss
+                }
+            });
+        }
+
+        /** only look up the remote cache once */
+        @Override Expanded expand(GAV gav, Path profile, Supplier<Expanded> expand) {
+            return local.expand(gav, profile, () -> {
+                Expanded expanded = expand.get();
+                put(gav, expanded);
+                return expanded;
+            });
+        }
+
+        @Override void store(GAV gav, Path profile, Expanded expanded) {
+            local.store(gav, profile, expanded);
+            put(gav, expanded);
+        }
+
+        private void put(GAV gav, Expanded expanded) {
+            if (!RemoteCache.isShareable(singletonList(gav)))
+                return;
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                BinaryXml.write(expanded.xml, out);
+                remote.putExpanded(key(gav), expanded.profiles, out.toByteArray());
+            } catch (IOException | RuntimeException e) {
+                // the remote cache is only an optimization
+            }
+        }
+    }
+
+    /**
+     * The expanded trees of profiles shared by many modules, kept in memory in the compact {@link BinaryXml} format,
+     * so every hit decodes a fresh tree that the caller can move elements out of.
+     * The least recently used entries are evicted when their total size exceeds the limit,
+     * and they are only softly referenced, so the garbage collector can clear them when memory gets tight.
+     */
+    static class Trees {
+        private static class Entry {
+            final List<Path> sources;
+            /** the last modified time of the sources, to detect changes without hashing */
+            final long[] modified;
+            final List<GAV> profiles;
+            final byte[] xml;
+
+            Entry(List<Path> sources, long[] modified, List<GAV> profiles, byte[] xml) {
+                this.sources = sources;
+                this.modified = modified;
+                this.profiles = profiles;
+                this.xml = xml;
+            }
+        }
+
+        /** is enqueued when the garbage collector clears it, so its weight is subtracted on the next access */
+        private static class Node extends SoftReference<Entry> {
+            final Path profile;
+            final int weight;
+
+            Node(Path profile, Entry entry, ReferenceQueue<Entry> queue) {
+                super(entry, queue);
+                this.profile = profile;
+                this.weight = entry.xml.length;
+            }
+        }
+
+        private final long maxBytes;
+        private final Map<Path, Node> nodes = new LinkedHashMap<>(16, 0.75f, true);
+        private final ReferenceQueue<Entry> cleared = new ReferenceQueue<>();
+        private long bytes;
+
+        Trees(long maxBytes) { this.maxBytes = maxBytes; }
+
+        synchronized long bytes() {
+            expunge();
+            return bytes;
+        }
+
+        synchronized int size() {
+            expunge();
+            return nodes.size();
+        }
+
+        private synchronized Optional<Entry> get(Path profile) {
+            expunge();
+            Node node = nodes.get(profile);
+            if (node == null)
+                return Optional.empty();
+            Entry entry = node.get();
+            if (entry == null || !Arrays.equals(entry.modified, modified(entry.sources))) {
+                remove(profile);
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        }
+
+        private synchronized void put(Path profile, Entry entry) {
+            expunge();
+            remove(profile);
+            if (entry.xml.length > maxBytes)
+                return;
+            Node node = new Node(profile, entry, cleared);
+            nodes.put(profile, node);
+            bytes += node.weight;
+            for (Iterator<Node> iterator = nodes.values().iterator(); bytes > maxBytes && iterator.hasNext(); ) {
+                bytes -= iterator.next().weight;
+                iterator.remove();
+            }
+        }
+
+        /** what the garbage collector does when memory gets tight; for tests */
+        synchronized void collect(Path profile) {
+            Node node = nodes.get(profile);
+            node.clear();
+            node.enqueue();
+        }
+
+        /** remove the nodes cleared by the garbage collector, unless they have already been removed or replaced */
+        private void expunge() {
+            for (Reference<? extends Entry> reference; (reference = cleared.poll()) != null; ) {
+                Node node = (Node) reference;
+                if (nodes.get(node.profile) == node)
+                    remove(node.profile);
+            }
+        }
+
+        private void remove(Path profile) {
+            Node removed = nodes.remove(profile);
+            if (removed != null)
+                bytes -= removed.weight;
+        }
+
+        private static long[] modified(List<Path> sources) {
+            long[] modified = new long[sources.size()];
+            for (int i = 0; i < modified.length; i++)
+                modified[i] = sources.get(i).toFile().lastModified(); // 0 if it doesn't exist
+            return modified;
+        }
+    }
+
+    private static class Memory extends ProfileCache {
+        private final ProfileCache local;
+        private final Trees trees;
+
+        private Memory(ProfileCache local, Trees trees) {
+            super(null);
+            this.local = local;
+            this.trees = trees;
+        }
+
+        @Override Path location(GAV gav, Path profile) { return local.location(gav, profile); }
+
+        @Override Optional<Expanded> load(GAV gav, Path profile) {
+            Optional<Trees.Entry> entry = trees.get(profile);
+            if (entry.isPresent())
+                try {
+                    return Optional.of(new Expanded(entry.get().sources, entry.get().profiles,
+                        BinaryXml.read(ByteBuffer.wrap(entry.get().xml), profile.toUri().toString())));
+                } catch (IOException e) {
+                    throw new RuntimeException("can't decode cached profile " + gav, e);
+                }
+            Optional<Expanded> cached = local.load(gav, profile);
+            cached.ifPresent(expanded -> remember(profile, expanded));
+            return cached;
+        }
+
+        @Override Expanded expand(GAV gav, Path profile, Supplier<Expanded> expand) {
+            Expanded expanded = local.expand(gav, profile, expand);
+            remember(profile, expanded);
+            return expanded;
+        }
+
+        @Override void store(GAV gav, Path profile, Expanded expanded) {
+            local.store(gav, profile, expanded);
+            remember(profile, expanded);
+        }
+
+        private void remember(Path profile, Expanded expanded) {
+            if (!expanded.isCacheable())
+                return;
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                BinaryXml.write(expanded.xml, out);
+                trees.put(profile, new Trees.Entry(expanded.sources, Trees.modified(expanded.sources),
+                    expanded.profiles, out.toByteArray()));
+            } catch (IOException e) {
+                throw new RuntimeException("can't encode profile " + profile, e);
+            }
+        }
+    }
+
+    static byte[] hash(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.t1.pomx;
+
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Which modules use which external profiles, incl. nested profiles, so only the affected modules
+ * have to be converted again when e.g. a SNAPSHOT profile changes.
+ * Enabled with the system property <code>pomx.profile-index</code>, the file to store the index in:
+ * one line per module, with the module directory (relative to the directory of the index file)
+ * and the GAVs of the profiles, separated by tabs.
+ * Several processes can share an index: saving merges the modules recorded by this process into the current file.
+ */
+@Component(role = ProfileIndex.class)
+public class ProfileIndex {
+    private final Path file;
+    /** by absolute module directory */
+    private final Map<Path, Set<GAV>> modules = new ConcurrentHashMap<>();
+    /** the modules recorded by this process */
+    private final Set<Path> recorded = ConcurrentHashMap.newKeySet();
+    private volatile boolean dirty;
+
+    public ProfileIndex() { this(fromSystemProperties()); }
+
+    private static Path fromSystemProperties() {
+        String file = System.getProperty("pomx.profile-index");
+        return (file == null) ? null : Paths.get(file);
+    }
+
+    ProfileIndex(Path file) {
+        this.file = (file == null) ? null : file.toAbsolutePath().normalize();
+        if (this.file != null)
+            try {
+                modules.putAll(load());
+            } catch (IOException e) {
+                throw new RuntimeException("can't read profile index " + file, e);
+            }
+    }
+
+    boolean isEnabled() { return file != null; }
+
+    private Map<Path, Set<GAV>> load() throws IOException {
+        Map<Path, Set<GAV>> loaded = new TreeMap<>();
+        if (!Files.isRegularFile(file))
+            return loaded;
+        for (String line : Files.readAllLines(file, UTF_8)) {
+            if (line.isEmpty())
+                continue;
+            String[] split = line.split("\t");
+            Set<GAV> profiles = new LinkedHashSet<>();
+            for (int i = 1; i < split.length; i++)
+                profiles.add(GAV.split(split[i]));
+            loaded.put(file.getParent().resolve(split[0]).normalize(), profiles);
+        }
+        return loaded;
+    }
+
+    void record(Path module, Collection<GAV> profiles) {
+        if (!isEnabled())
+            return;
+        Path key = module.toAbsolutePath().normalize();
+        Set<GAV> previous = modules.put(key, new LinkedHashSet<>(profiles));
+        recorded.add(key);
+        if (previous == null || !previous.equals(new LinkedHashSet<>(profiles)))
+            dirty = true;
+    }
+
+    /**
+     * The modules using the profile, directly or nested. Without a version, all versions match,
+     * e.g. <code>com.example:company-profile</code>.
+     */
+    Set<Path> modulesUsing(GAV profile) {
+        return modules.entrySet().stream()
+            .filter(entry -> entry.getValue().stream().anyMatch(profile::matches))
+            .map(Map.Entry::getKey)
+            .collect(toCollection(TreeSet::new));
+    }
+
+    /** merge the modules recorded by this process into the index file, if anything changed */
+    synchronized void save() {
+        if (!isEnabled() || !dirty)
+            return;
+        dirty = false;
+        try {
+            Files.createDirectories(file.getParent());
+            LockedFiles.locked(LockedFiles.lockInTemp(file), () -> {
+                Map<Path, Set<GAV>> merged = load();
+                recorded.forEach(module -> merged.put(module, modules.get(module)));
+                modules.putAll(merged);
+                List<String> lines = merged.entrySet().stream()
+                    .map(entry -> file.getParent().relativize(entry.getKey()) + entry.getValue().stream()
+                        .map(gav -> "\t" + gav)
+                        .collect(joining()))
+                    .collect(toList());
+                LockedFiles.replace(file, out -> out.write((String.join("\n", lines) + "\n").getBytes(UTF_8)));
+                return null;
+            });
+        } catch (IOException e) {
+            dirty = true;
+            throw new RuntimeException("can't write profile index " + file, e);
+        }
+    }
+}
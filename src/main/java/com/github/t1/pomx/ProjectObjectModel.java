@@ -2,20 +2,31 @@ package com.github.t1.pomx;
 
 import com.github.t1.xml.Xml;
 import com.github.t1.xml.XmlElement;
+import org.w3c.dom.Document;
 
-import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static com.github.t1.xml.XmlElement.atBegin;
 import static com.github.t1.xml.XmlElement.before;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 class ProjectObjectModel {
     private static final List<String> PACKAGINGS = asList("war", "jar", "pom");
@@ -28,45 +39,307 @@ class ProjectObjectModel {
     private static final List<String> PROFILE_COPY_TO_PROJECT_ELEMENTS =
         asList("licenses", "developers", "repositories", "distributionManagement", "scm", "profiles");
 
+    /** the classifier of the variant of a profile published with its nested profiles already expanded */
+    static final String EXPANDED_CLASSIFIER = "expanded";
+
+    /** the element in an expanded variant that lists the nested profiles */
+    private static final String EXPANDED_MANIFEST = "expandedProfiles";
+
     private static final List<String> SCOPES = asList("provided", "compile", "runtime", "system", "test");
 
+    /** also in README! */
+    private static final List<String> CONSUMER_ELEMENTS = asList("modelVersion", "parent",
+        "groupId", "artifactId", "version", "packaging", "name", "description", "url", "organization",
+        "licenses", "developers", "scm", "dependencyManagement", "dependencies");
+
+    /**
+     * The child elements that identify list items when inlining profiles, like Maven's profile injection;
+     * other elements are identified by their name. The text of a <code>module</code> or <code>goal</code> is its key.
+     */
+    private static final Map<String, List<String>> INLINE_KEYS = new HashMap<>();
+
+    static {
+        INLINE_KEYS.put("dependency", asList("groupId", "artifactId", "type", "classifier"));
+        INLINE_KEYS.put("exclusion", asList("groupId", "artifactId"));
+        INLINE_KEYS.put("plugin", asList("groupId", "artifactId"));
+        INLINE_KEYS.put("extension", asList("groupId", "artifactId"));
+        INLINE_KEYS.put("execution", asList("id"));
+        INLINE_KEYS.put("repository", asList("id"));
+        INLINE_KEYS.put("pluginRepository", asList("id"));
+        INLINE_KEYS.put("profile", asList("id"));
+        INLINE_KEYS.put("developer", asList("id"));
+        INLINE_KEYS.put("license", asList("name"));
+        INLINE_KEYS.put("module", emptyList());
+        INLINE_KEYS.put("goal", emptyList());
+    }
+
+    /**
+     * The dependency elements in a consumer POM that may contain properties: only the leaves,
+     * as replacing the text of e.g. <code>exclusions</code> would remove its child elements.
+     */
+    private static final String CONSUMER_DEPENDENCY_ELEMENTS = "dependencies/dependency/*[not(*)]"
+        + "|dependencies/dependency/exclusions/exclusion/*[not(*)]"
+        + "|dependencyManagement/dependencies/dependency/*[not(*)]"
+        + "|dependencyManagement/dependencies/dependency/exclusions/exclusion/*[not(*)]";
+
     private ProjectObjectModel(Resolver resolver, Xml in) {
         this.resolver = resolver;
         this.in = in;
+        this.uri = in.uri();
     }
 
 
     static ProjectObjectModel from(String xml, Resolver resolver) { return from(Xml.fromString(xml), resolver); }
 
-    static ProjectObjectModel readFrom(Path path, Resolver resolver) { return from(Xml.load(path.toUri()), resolver); }
+    static ProjectObjectModel readFrom(Path path, Resolver resolver) { return readFrom(path, resolver, false); }
+
+    /** optionally validate the pomx and its external profiles against the schema while reading */
+    static ProjectObjectModel readFrom(Path path, Resolver resolver, boolean validate) {
+        ProjectObjectModel model = from(XmlFiles.load(path, validate), resolver);
+        model.validate = validate;
+        return model;
+    }
 
     static ProjectObjectModel from(Xml xml, Resolver resolver) { return new ProjectObjectModel(resolver, xml); }
 
 
     private final Resolver resolver;
-    private final Xml in;
+    /** released when the output is copied from it, if {@link #releasingInput()} */
+    private Xml in;
+    private final URI uri;
+    private boolean releaseInput;
+    private boolean inlineProfiles;
+    /** the profiles of the released input */
+    private List<GAV> inputProfiles;
     private Xml out;
+    private Document document;
+    private final Set<Step> expanded = EnumSet.noneOf(Step.class);
+    private ProfileCache profileCache = ProfileCache.NONE;
+    private PluginHoisting pluginHoisting = PluginHoisting.NONE;
+    private boolean validate;
+    /** 0 for the project, 1 for its external profiles, etc. */
+    private int depth;
+    /** the files this model was expanded from: the input file and all (nested) external profiles */
+    private final List<Path> sources = new ArrayList<>();
+    /** the external profiles this model was expanded with, incl. nested profiles */
+    private final Set<GAV> profiles = new LinkedHashSet<>();
+
+    ProjectObjectModel withProfileCache(ProfileCache profileCache) {
+        this.profileCache = profileCache;
+        return this;
+    }
+
+    /** move the plugins configured identically by many modules into the <code>pluginManagement</code> of the root */
+    ProjectObjectModel withPluginHoisting(PluginHoisting pluginHoisting) {
+        this.pluginHoisting = pluginHoisting;
+        return this;
+    }
 
+    /**
+     * Merge the external profiles directly into the project, instead of wrapping them in always active profiles,
+     * so Maven doesn't have to activate and inject them, but they can't be deactivated with <code>-P-group:artifact</code>.
+     */
+    ProjectObjectModel inliningProfiles() {
+        this.inlineProfiles = true;
+        return this;
+    }
+
+    /** don't keep the input tree after copying it to the output tree, to reduce the memory footprint */
+    ProjectObjectModel releasingInput() {
+        this.releaseInput = true;
+        return this;
+    }
+
+
+    synchronized String asString() { return PomSerializer.toString(convertedDocument()); }
+
+    /** the converted tree itself, e.g. for the {@link DomModelReader}; it must not be changed */
+    synchronized Document asDocument() { return convertedDocument(); }
 
-    String asString() { return converted().toXmlString(); }
+    /**
+     * A minimal POM for the consumers of the deployed artifact, so their resolvers have less to parse and evaluate:
+     * only the coordinates, the dependencies (without test and provided scope) with the properties replaced,
+     * and the metadata like the licenses. The external profiles are applied, and the build sections are dropped.
+     * Parents and BOMs don't have a consumer POM, see {@link #hasConsumerPom()}, so this is the complete POM for them.
+     */
+    synchronized String asConsumerString() { return PomSerializer.toString(consumerDocument()); }
 
-    private Xml converted() {
+    /**
+     * Not for the <code>pom</code> packaging: the projects that inherit from a parent or import a BOM
+     * need e.g. the properties, the dependency management, and the build sections.
+     */
+    synchronized boolean hasConsumerPom() {
+        return !converted().getOptionalElement("packaging").map(XmlElement::getText).orElse("jar").equals("pom");
+    }
+
+    /** the coordinates of this project; doesn't resolve any external profiles */
+    synchronized GAV getGav() {
+        Xml xml = expand(Step.COORDINATES);
+        return new GAV(
+            text(xml, "groupId"),
+            text(xml, "artifactId"),
+            text(xml, "classifier"),
+            text(xml, "version"));
+    }
+
+    /** the dependencies of this project and its external profiles; resolves only the profiles */
+    synchronized List<GAV> getDependencies() {
+        Xml xml = expand(Step.DEPENDENCIES, Step.EXTERNAL_PROFILES);
+        List<XmlElement> dependencies = new ArrayList<>(xml.find("dependencies/dependency"));
+        dependencies.addAll(xml.find("profiles/profile[activation/property/name='user.dir']/dependencies/dependency"));
+        return dependencies.stream()
+            .map(dependency -> new GAV(
+                text(dependency, "groupId"),
+                text(dependency, "artifactId"),
+                text(dependency, "classifier"),
+                text(dependency, "version")))
+            .collect(toList());
+    }
+
+    /**
+     * The other artifacts needed to build this project, like the Maven reactor orders the projects by:
+     * the parent, the dependencies, the imported boms, and the build plugins with their dependencies.
+     * Only with <code>withProfiles</code>, the external profiles are resolved and their dependencies added.
+     */
+    synchronized List<GAV> getBuildDependencies(boolean withProfiles) {
+        Xml xml = withProfiles
+            ? expand(Step.BUILD_PLUGINS, Step.DEPENDENCY_MANAGEMENT, Step.DEPENDENCIES, Step.EXTERNAL_PROFILES)
+            : expand(Step.BUILD_PLUGINS, Step.DEPENDENCY_MANAGEMENT, Step.DEPENDENCIES);
+        List<String> prefixes = withProfiles
+            ? asList("", "profiles/profile[activation/property/name='user.dir']/")
+            : singletonList("");
+        Map<String, String> properties = buildProperties(xml, prefixes);
+        List<XmlElement> elements = new ArrayList<>(xml.find("parent"));
+        for (String prefix : prefixes)
+            elements.addAll(xml.find(prefix + "dependencies/dependency"
+                + "|" + prefix + "dependencyManagement/dependencies/dependency[scope='import']"
+                + "|" + prefix + "build/plugins/plugin"
+                + "|" + prefix + "build/plugins/plugin/dependencies/dependency"));
+        return elements.stream()
+            .map(element -> new GAV(
+                Optional.ofNullable(interpolated(element, "groupId", properties))
+                    .orElse(element.getName().equals("plugin") ? "org.apache.maven.plugins" : null),
+                interpolated(element, "artifactId", properties),
+                interpolated(element, "classifier", properties),
+                interpolated(element, "version", properties)))
+            .collect(toList());
+    }
+
+    /**
+     * The properties of this project and of the profiles with the prefixes, and the <code>project.*</code> coordinates,
+     * for coordinates like <code>${project.groupId}:sibling:${project.version}</code>.
+     * Unlike Maven, this doesn't know the properties inherited from the parent.
+     */
+    private static Map<String, String> buildProperties(Xml xml, List<String> prefixes) {
+        Map<String, String> properties = new HashMap<>();
+        for (String prefix : prefixes)
+            xml.find(prefix + "properties/*").forEach(property -> properties.put(property.getName(), property.getText()));
+        Optional<XmlElement> parent = xml.getOptionalElement("parent");
+        for (String name : asList("groupId", "artifactId", "version")) {
+            Optional<String> parentValue = parent.map(element -> text(element, name));
+            parentValue.ifPresent(value -> properties.put("project.parent." + name, value));
+            Optional<String> value = Optional.ofNullable(text(xml, name));
+            if (!name.equals("artifactId") && !value.isPresent())
+                value = parentValue;
+            value.ifPresent(it -> properties.put("project." + name, it));
+        }
+        return properties;
+    }
+
+    private static String interpolated(XmlElement element, String name, Map<String, String> properties) {
+        String text = text(element, name);
+        return (text == null) ? null : interpolate(text, properties);
+    }
+
+    /** the modules of this project; doesn't expand anything */
+    synchronized List<String> getModules() {
+        return ((in == null) ? out : in).find("modules/module").stream().map(XmlElement::getText).collect(toList());
+    }
+
+    /** the external profiles referenced directly by this project; doesn't resolve anything */
+    synchronized List<GAV> getProfiles() { return (in == null) ? inputProfiles : profiles(in); }
+
+    private static List<GAV> profiles(Xml xml) {
+        return xml.find("profile").stream().map(profile -> GAV.split(profile.getText())).collect(toList());
+    }
+
+    /** the external profiles of this project, incl. nested profiles; resolves only the profiles */
+    synchronized Set<GAV> getExpandedProfiles() {
+        expand(Step.EXTERNAL_PROFILES);
+        return Collections.unmodifiableSet(profiles);
+    }
+
+    private static String text(XmlElement element, String name) {
+        return element.getOptionalElement(name).map(XmlElement::getText).orElse(null);
+    }
+
+    private Xml converted() { return expand(Step.values()); }
+
+    private Document convertedDocument() {
+        converted();
+        return document;
+    }
+
+    /**
+     * Run the steps not run, yet. When inlining the external profiles, all preceding steps run first,
+     * as the later steps would otherwise also expand the elements inlined from the profiles.
+     */
+    private synchronized Xml expand(Step... steps) {
         if (out == null) {
-            out = Xml.fromString(in.toXmlString());
-            expand();
+            document = XmlFiles.parse(in.toXmlString());
+            out = new Xml(document);
+            if (uri.getScheme().equals("file"))
+                sources.add(Paths.get(uri));
+            if (releaseInput) {
+                inputProfiles = profiles(in);
+                in = null;
+            }
+        }
+        for (Step step : steps) {
+            if (inlineProfiles)
+                for (Step preceding : Step.values())
+                    if (preceding.compareTo(step) < 0 && expanded.add(preceding))
+                        run(preceding);
+            if (expanded.add(step))
+                run(step);
         }
         return out;
     }
 
-    private void expand() {
-        convertNamespace();
-        expandModelVersion();
-        writeGeneratedWarning();
-        expandGav();
-        expandBuildPlugins();
-        expandDependencyManagement();
-        expandDependencies();
-        expandExternalProfiles();
+    private enum Step {
+        NAMESPACE, MODEL_VERSION, GENERATED_WARNING, COORDINATES,
+        BUILD_PLUGINS, DEPENDENCY_MANAGEMENT, DEPENDENCIES, EXTERNAL_PROFILES
+    }
+
+    private void run(Step step) {
+        switch (step) {
+        case NAMESPACE:
+            convertNamespace();
+            break;
+        case MODEL_VERSION:
+            expandModelVersion();
+            break;
+        case GENERATED_WARNING:
+            writeGeneratedWarning();
+            break;
+        case COORDINATES:
+            expandGav();
+            break;
+        case BUILD_PLUGINS:
+            if (uri.getScheme().equals("file"))
+                pluginHoisting.apply(Paths.get(uri), out);
+            expandBuildPlugins();
+            break;
+        case DEPENDENCY_MANAGEMENT:
+            expandDependencyManagement();
+            break;
+        case DEPENDENCIES:
+            expandDependencies();
+            break;
+        case EXTERNAL_PROFILES:
+            expandExternalProfiles();
+            break;
+        }
     }
 
     private void convertNamespace() {
@@ -76,7 +349,6 @@ class ProjectObjectModel {
     }
 
     private void writeGeneratedWarning() {
-        URI uri = in.uri();
         Object source = uri.getScheme().equals("file")
             ? Paths.get(System.getProperty("user.dir")).relativize(Paths.get(uri))
             : uri;
@@ -91,8 +363,8 @@ class ProjectObjectModel {
     }
 
     private void expandBuildPlugins() {
-        out.getOptionalElement("build/plugins")
-            .ifPresent(plugins -> plugins
+        Stream.of("build/plugins", "build/pluginManagement/plugins")
+            .forEach(path -> out.getOptionalElement(path).ifPresent(plugins -> plugins
                 .elements().stream()
                 .filter(element -> element.getName().equals("plugin"))
                 .filter(XmlElement::hasId)
@@ -115,7 +387,7 @@ class ProjectObjectModel {
                                         element.addElement("version").addText(gav2.getVersion());
                                     dependency.remove();
                                 }));
-                }));
+                })));
     }
 
     private void expandGav() {
@@ -183,12 +455,20 @@ class ProjectObjectModel {
     }
 
     private void expandExternalProfiles() {
-        if (!out.find("profile").isEmpty())
-            out.nl();
-        out.find("profile")
-            .forEach(source -> {
-                GAV gav = GAV.split(source.getText());
-                source.remove();
+        List<XmlElement> profiles = out.find("profile");
+        if (profiles.isEmpty())
+            return;
+        out.nl();
+        Jfr.Span span = Jfr.expandExternalProfiles(uri, depth, profiles.size());
+        try {
+            List<GAV> gavs = profiles.stream()
+                .map(source -> GAV.split(source.getText()))
+                .map(this::resolveVersion)
+                .collect(toList());
+            List<Xml> expandedProfiles = expandedProfiles(gavs);
+            for (int i = 0; i < gavs.size(); i++) {
+                GAV gav = gavs.get(i);
+                profiles.get(i).remove();
 
                 XmlElement target = out.getOrCreateElement("profiles").addElement("profile");
                 target.addElement("id").addText(gav.getGroupId() + ":" + gav.getArtifactId());
@@ -199,11 +479,129 @@ class ProjectObjectModel {
                 String propertyName = gav.getGroupId() + "." + gav.getArtifactId() + ".version";
                 target.getOrCreateElement("properties").addElement(propertyName, atBegin()).addText(gav.getVersion());
 
-                List<XmlElement> elements = readFrom(resolver.resolve(gav, "xml"), resolver).converted().elements();
+                List<XmlElement> elements = expandedProfiles.get(i).elements();
                 elements.stream()
                     .filter(element -> !PROFILE_NO_COPY_ELEMENTS.contains(element.getName()))
                     .forEach(element -> move(element, target));
-            });
+            }
+            if (inlineProfiles && depth == 0)
+                inlineProfiles();
+        } finally {
+            span.commit();
+        }
+    }
+
+    /**
+     * The dynamic version is recorded, too, so the caches can tell that the expansion
+     * depends on the resolution and doesn't only change when the profiles change.
+     */
+    private GAV resolveVersion(GAV gav) {
+        if (!gav.hasDynamicVersion())
+            return gav;
+        profiles.add(gav);
+        return resolver.resolveVersion(gav);
+    }
+
+    /**
+     * Merge the profiles of the external profiles incl. the nested ones (after expanding them as usual, so the
+     * {@link ProfileCache} entries stay the same) into the project. Like Maven, later profiles win.
+     */
+    private void inlineProfiles() {
+        Set<String> ids = profiles.stream().map(gav -> gav.getGroupId() + ":" + gav.getArtifactId()).collect(toSet());
+        for (XmlElement profile : out.find("profiles/profile[activation/property/name='user.dir']")) {
+            if (!ids.contains(text(profile, "id")))
+                continue;
+            profile.elements().stream()
+                .filter(element -> !element.getName().equals("id") && !element.getName().equals("activation"))
+                .forEach(element -> inline(element, out.getOrCreateElement(element.getName(), before("profiles"))));
+            profile.remove();
+        }
+        out.getOptionalElement("profiles")
+            .filter(profiles -> profiles.elements().isEmpty())
+            .ifPresent(XmlElement::remove);
+    }
+
+    /** merge the children of the source into the target: the source wins for text, list items are added */
+    private static void inline(XmlElement source, XmlElement target) {
+        for (XmlElement child : source.elements()) {
+            Optional<XmlElement> existing = target.elements().stream()
+                .filter(element -> element.getName().equals(child.getName()))
+                .filter(element -> inlineKey(element).equals(inlineKey(child)))
+                .findFirst();
+            if (!existing.isPresent())
+                target.addNode(child);
+            else if (child.elements().isEmpty())
+                existing.get().setText(child.getText());
+            else
+                inline(child, existing.get());
+        }
+    }
+
+    private static String inlineKey(XmlElement element) {
+        List<String> keys = INLINE_KEYS.get(element.getName());
+        if (keys == null)
+            return "";
+        if (keys.isEmpty())
+            return element.getText();
+        return keys.stream().map(key -> String.valueOf(text(element, key))).collect(joining(":"));
+    }
+
+    /** resolves all profiles of this document in one batch */
+    private List<Xml> expandedProfiles(List<GAV> gavs) {
+        List<Jfr.Resolution> resolutions = gavs.stream().map(gav -> Jfr.resolve(gav, "xml")).collect(toList());
+        List<Path> paths = resolver.resolveAll(gavs, "xml");
+        List<Xml> expandedProfiles = new ArrayList<>(gavs.size());
+        for (int i = 0; i < gavs.size(); i++) {
+            Optional<Path> variant = expandedVariant(gavs.get(i), paths.get(i));
+            Optional<ProfileCache.Expanded> cached;
+            Jfr.Resolution resolution = resolutions.get(i);
+            try {
+                cached = variant.isPresent() ? Optional.empty() : profileCache.load(gavs.get(i), paths.get(i));
+                resolution.resolved(variant.orElse(paths.get(i)), cached.isPresent());
+            } finally {
+                resolution.commit();
+            }
+            expandedProfiles.add(variant.isPresent()
+                ? fromExpandedVariant(gavs.get(i), variant.get())
+                : expandedProfile(gavs.get(i), paths.get(i), cached));
+        }
+        return expandedProfiles;
+    }
+
+    /**
+     * The variant of a released profile with the nested profiles already expanded, see {@link #writeExpandedTo(Path)}.
+     * It's next to the profile, so we don't have to resolve anything else. Snapshots are always expanded,
+     * as the variant may have been written before the profile or the nested profiles changed.
+     */
+    private static Optional<Path> expandedVariant(GAV gav, Path profile) {
+        if (gav.isSnapshot())
+            return Optional.empty();
+        Path variant = profile.resolveSibling(gav.withClassifier(EXPANDED_CLASSIFIER).asPath("xml").getFileName());
+        return Optional.of(variant).filter(Files::isRegularFile);
+    }
+
+    private Xml fromExpandedVariant(GAV gav, Path variant) {
+        Xml xml = XmlFiles.load(variant);
+        XmlElement manifest = xml.getOptionalElement(EXPANDED_MANIFEST)
+            .orElseThrow(() -> new RuntimeException("no " + EXPANDED_MANIFEST + " in expanded profile " + variant));
+        sources.add(variant);
+        profiles.add(gav);
+        manifest.find("profile").forEach(nested -> profiles.add(GAV.split(nested.getText())));
+        manifest.remove();
+        return xml;
+    }
+
+    private Xml expandedProfile(GAV gav, Path path, Optional<ProfileCache.Expanded> cached) {
+        ProfileCache.Expanded expanded = cached.orElseGet(() -> profileCache.expand(gav, path, () -> {
+            ProjectObjectModel profile = readFrom(path, resolver, validate).withProfileCache(profileCache);
+            profile.depth = depth + 1;
+            Xml xml = profile.converted();
+            return new ProfileCache.Expanded(profile.sources, new ArrayList<>(profile.profiles), xml);
+        }));
+        sources.addAll(expanded.sources);
+        profiles.add(gav);
+        profiles.addAll(expanded.profiles);
+        return expanded.xml;
     }
 
     private void move(XmlElement element, XmlElement target) {
@@ -215,11 +613,90 @@ class ProjectObjectModel {
     }
 
 
-    void writeTo(Path path) {
-        try {
-            Files.write(path, asString().getBytes(UTF_8));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    synchronized void writeTo(Path path) {
+        Document document = convertedDocument();
+        XmlFiles.write(path, writer -> PomSerializer.write(document, writer));
+    }
+
+    /**
+     * Write this profile with all nested profiles expanded, plus a manifest of the nested profiles,
+     * to be published with the {@link #EXPANDED_CLASSIFIER}, so projects using it don't have to resolve and parse
+     * the nested profiles.
+     */
+    synchronized void writeExpandedTo(Path path) {
+        Document document = (Document) convertedDocument().cloneNode(true);
+        XmlElement manifest = new Xml(document).addElement(EXPANDED_MANIFEST);
+        profiles.forEach(nested -> manifest.addElement("profile").addText(nested.toString()));
+        XmlFiles.write(path, writer -> PomSerializer.write(document, writer));
+    }
+
+    synchronized void writeConsumerTo(Path path) {
+        Document document = consumerDocument();
+        XmlFiles.write(path, writer -> PomSerializer.write(document, writer));
+    }
+
+    private Document consumerDocument() {
+        Document document = (Document) convertedDocument().cloneNode(true);
+        if (!hasConsumerPom())
+            return document;
+        Xml consumer = new Xml(document);
+        Map<String, String> properties = new HashMap<>();
+        consumer.find("properties/*").forEach(property -> properties.put(property.getName(), property.getText()));
+        for (XmlElement profile : consumer.find("profiles/profile[activation/property/name='user.dir']")) {
+            profile.find("properties/*").forEach(property -> properties.put(property.getName(), property.getText()));
+            applyDependencies(profile, consumer, "dependencyManagement/dependencies");
+            applyDependencies(profile, consumer, "dependencies");
+        }
+        Stream.of("groupId", "artifactId", "version")
+            .forEach(name -> consumer.getOptionalElement(name)
+                .ifPresent(element -> properties.put("project." + name, element.getText())));
+
+        consumer.elements().stream()
+            .filter(element -> !CONSUMER_ELEMENTS.contains(element.getName()))
+            .forEach(XmlElement::remove);
+        consumer.find("dependencies/dependency[scope='test' or scope='provided']").forEach(XmlElement::remove);
+        consumer.getOptionalElement("dependencies")
+            .filter(dependencies -> dependencies.elements().isEmpty())
+            .ifPresent(XmlElement::remove);
+        consumer.find(CONSUMER_DEPENDENCY_ELEMENTS)
+            .forEach(element -> element.setText(interpolate(element.getText(), properties)));
+        return document;
+    }
+
+    /** like Maven's profile injection: a dependency of the profile replaces one of the project with the same key */
+    private static void applyDependencies(XmlElement profile, Xml project, String path) {
+        List<XmlElement> dependencies = profile.find(path + "/dependency");
+        if (dependencies.isEmpty())
+            return;
+        XmlElement target = project.getOrCreateElement(path);
+        for (XmlElement dependency : dependencies) {
+            String key = dependencyKey(dependency);
+            target.find("dependency").stream()
+                .filter(existing -> dependencyKey(existing).equals(key))
+                .forEach(XmlElement::remove);
+            target.addNode(dependency);
+        }
+    }
+
+    /** with Maven's defaults, so e.g. an explicit <code>jar</code> type matches a dependency without a type */
+    private static String dependencyKey(XmlElement dependency) {
+        return text(dependency, "groupId") + ":" + text(dependency, "artifactId")
+            + ":" + Optional.ofNullable(text(dependency, "type")).orElse("jar")
+            + ":" + Optional.ofNullable(text(dependency, "classifier")).orElse("");
+    }
+
+    /** replace <code>${name}</code> expressions; unknown properties stay */
+    private static String interpolate(String text, Map<String, String> properties) {
+        StringBuilder out = new StringBuilder();
+        int start = 0;
+        for (int open; (open = text.indexOf("${", start)) >= 0; ) {
+            int close = text.indexOf('}', open);
+            if (close < 0)
+                break;
+            String value = properties.get(text.substring(open + 2, close));
+            out.append(text, start, open).append((value == null) ? text.substring(open, close + 1) : value);
+            start = close + 1;
         }
+        return out.append(text, start, text.length()).toString();
     }
 }
@@ -0,0 +1,177 @@
+package com.github.t1.pomx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An optional cache shared between machines, e.g. ephemeral CI agents, with a plain HTTP server:
+ * entries are read with <code>GET {url}/{key}</code> and written with <code>PUT {url}/{key}</code>.
+ * It must never break or block the build: any error is a cache miss, and after a connection problem,
+ * the cache is disabled for the rest of the build, so we don't wait for the timeout again and again.
+ */
+class RemoteCache {
+    /** change this when the content of the entries changes */
+    private static final String FORMAT = "pomx-remote-cache-2";
+
+    static final RemoteCache NONE = new RemoteCache(null, 0);
+
+    /** from the system properties <code>pomx.remote-cache</code> (the url) and <code>pomx.remote-cache-timeout</code> (ms) */
+    static RemoteCache fromSystemProperties() {
+        String url = System.getProperty("pomx.remote-cache");
+        return (url == null) ? NONE : new RemoteCache(url, Integer.getInteger("pomx.remote-cache-timeout", 1000));
+    }
+
+    /** a hex SHA-256 of the format, the implementation version, and all parts */
+    static String key(byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(FORMAT.getBytes(UTF_8));
+            digest.update(String.valueOf(RemoteCache.class.getPackage().getImplementationVersion()).getBytes(UTF_8));
+            for (byte[] part : parts) {
+                digest.update((byte) 0);
+                digest.update(part);
+            }
+            StringBuilder out = new StringBuilder();
+            for (byte b : digest.digest())
+                out.append(String.format("%02x", b));
+            return out.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Released profiles with fixed versions don't change, so only expansions of those,
+     * incl. all nested profiles, can be shared.
+     */
+    static boolean isShareable(Collection<GAV> profiles) {
+        return profiles.stream().noneMatch(gav -> gav.isSnapshot() || gav.hasDynamicVersion());
+    }
+
+    /** the content of an entry, and the profiles (incl. nested profiles) it was expanded from */
+    static class Expanded {
+        final List<GAV> profiles;
+        final ByteBuffer content;
+
+        private Expanded(List<GAV> profiles, ByteBuffer content) {
+            this.profiles = profiles;
+            this.content = content;
+        }
+    }
+
+
+    private final String url;
+    private final int timeout;
+    private volatile boolean available;
+
+    RemoteCache(String url, int timeout) {
+        this.url = (url != null && url.endsWith("/")) ? url.substring(0, url.length() - 1) : url;
+        this.timeout = timeout;
+        this.available = url != null;
+    }
+
+    boolean isEnabled() { return available; }
+
+    Optional<byte[]> get(String key) {
+        if (!available)
+            return Optional.empty();
+        try {
+            HttpURLConnection connection = open(key, "GET");
+            if (connection.getResponseCode() != 200) {
+                readAll(connection.getErrorStream()); // so the connection can be reused
+                return Optional.empty();
+            }
+            return Optional.of(readAll(connection.getInputStream()));
+        } catch (IOException | RuntimeException e) {
+            available = false;
+            return Optional.empty();
+        }
+    }
+
+    /** a broken entry or one with profiles that are not {@link #isShareable(Collection) shareable} is a miss */
+    Optional<Expanded> getExpanded(String key) {
+        return get(key).flatMap(bytes -> {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                int count = BinaryXml.readVarint(buffer);
+                List<GAV> profiles = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    profiles.add(GAV.split(BinaryXml.readString(buffer)));
+                return Optional.of(new Expanded(profiles, buffer.slice()))
+                    .filter(expanded -> isShareable(expanded.profiles));
+            } catch (RuntimeException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /** only if all profiles are {@link #isShareable(Collection) shareable} */
+    void putExpanded(String key, Collection<GAV> profiles, byte[] content) {
+        if (!available || !isShareable(profiles))
+            return;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryXml.writeVarint(out, profiles.size());
+            for (GAV profile : profiles)
+                BinaryXml.writeString(out, profile.toString());
+            out.write(content);
+            put(key, out.toByteArray());
+        } catch (IOException e) {
+            // can't happen with a byte array, and the remote cache is only an optimization
+        }
+    }
+
+    void put(String key, byte[] content) {
+        if (!available)
+            return;
+        try {
+            HttpURLConnection connection = open(key, "PUT");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(content.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(content);
+            }
+            if (connection.getResponseCode() >= 400) // a rejected entry is fine, e.g. a read-only cache
+                readAll(connection.getErrorStream());
+            else
+                readAll(connection.getInputStream());
+        } catch (IOException | RuntimeException e) {
+            available = false;
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        if (stream == null)
+            return new byte[0];
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) >= 0; )
+                out.write(buffer, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private HttpURLConnection open(String key, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "/" + key).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setUseCaches(false);
+        return connection;
+    }
+}
@@ -1,7 +1,19 @@
 package com.github.t1.pomx;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
 
 interface Resolver {
     Path resolve(GAV gav, String type);
+
+    /** the paths in the same order as the GAVs; resolvers that can resolve in one batch should override this */
+    default List<Path> resolveAll(Collection<GAV> gavs, String type) {
+        return gavs.stream().map(gav -> resolve(gav, type)).collect(toList());
+    }
+
+    /** the GAV with the concrete version for a {@link GAV#hasDynamicVersion() dynamic version} */
+    GAV resolveVersion(GAV gav);
 }
@@ -0,0 +1,56 @@
+package com.github.t1.pomx;
+
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * The concrete versions of external profiles referenced with a version range, <code>LATEST</code>, or <code>RELEASE</code>,
+ * so the repository metadata is read only once, even when many modules reference the same profile.
+ * Within one build, a version never changes; across builds in the same JVM (e.g. the maven daemon),
+ * versions are cached for <code>pomx.version-cache-seconds</code> (default 600).
+ * The versions are cached by the repository they were read from, as another build can use another local repository.
+ */
+@Component(role = VersionCache.class)
+public class VersionCache {
+    /** by repository and GAV */
+    private static final ConcurrentMap<List<Object>, Entry> JVM = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final String version;
+        final long expires;
+
+        Entry(String version, long expires) {
+            this.version = version;
+            this.expires = expires;
+        }
+    }
+
+    long ttl = SECONDS.toNanos(Long.getLong("pomx.version-cache-seconds", 600));
+    LongSupplier clock = System::nanoTime;
+    private final ConcurrentMap<List<Object>, String> build = new ConcurrentHashMap<>();
+
+    /** the repository is e.g. the path of the local repository */
+    String get(Object repository, GAV gav, Function<GAV, String> resolve) {
+        return build.computeIfAbsent(asList(repository, gav), key -> jvm(key, gav, resolve));
+    }
+
+    private String jvm(List<Object> key, GAV gav, Function<GAV, String> resolve) {
+        long now = clock.getAsLong();
+        Entry entry = JVM.get(key);
+        if (entry == null || entry.expires - now < 0)
+            entry = JVM.compute(key, (k, old) -> (old == null || old.expires - now < 0)
+                ? new Entry(resolve.apply(gav), now + ttl)
+                : old);
+        return entry.version;
+    }
+
+    void endBuild() { build.clear(); }
+}
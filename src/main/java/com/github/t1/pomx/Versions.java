@@ -0,0 +1,148 @@
+package com.github.t1.pomx;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static java.util.Arrays.asList;
+
+/**
+ * The order of versions and the version ranges of Maven, for resolving dynamic versions without Maven on the classpath,
+ * e.g. in the {@link Main} CLI. Covers the common cases of Maven's <code>ComparableVersion</code>: numbers compare
+ * numerically, missing parts count as <code>0</code>, and qualifiers are ordered
+ * <code>alpha &lt; beta &lt; milestone &lt; rc &lt; snapshot &lt; (release) &lt; sp &lt; others</code>.
+ */
+class Versions {
+    static final Comparator<String> ORDER = Versions::compare;
+
+    private static final List<String> QUALIFIERS = asList("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+
+    /** <code>LATEST</code>, <code>RELEASE</code>, or a version range like <code>[1.0,2.0)</code> or <code>(,1.0],[1.2,)</code> */
+    static boolean matches(String dynamicVersion, String version) {
+        switch (dynamicVersion) {
+        case "LATEST":
+            return true;
+        case "RELEASE":
+            return !version.endsWith("-SNAPSHOT");
+        default:
+            return inRange(dynamicVersion, version);
+        }
+    }
+
+    private static boolean inRange(String range, String version) {
+        String rest = range.trim();
+        while (!rest.isEmpty()) {
+            int end = indexOfAny(rest, ']', ')');
+            if ((rest.charAt(0) != '[' && rest.charAt(0) != '(') || end < 0)
+                throw new IllegalArgumentException("invalid version range " + range);
+            String restriction = rest.substring(1, end);
+            int comma = restriction.indexOf(',');
+            if (comma < 0) {
+                if (compare(restriction.trim(), version) == 0)
+                    return true;
+            } else {
+                String lower = restriction.substring(0, comma).trim();
+                String upper = restriction.substring(comma + 1).trim();
+                boolean aboveLower = lower.isEmpty()
+                    || ((rest.charAt(0) == '[') ? compare(version, lower) >= 0 : compare(version, lower) > 0);
+                boolean belowUpper = upper.isEmpty()
+                    || ((rest.charAt(end) == ']') ? compare(version, upper) <= 0 : compare(version, upper) < 0);
+                if (aboveLower && belowUpper)
+                    return true;
+            }
+            rest = rest.substring(end + 1).trim();
+            if (rest.startsWith(","))
+                rest = rest.substring(1).trim();
+        }
+        return false;
+    }
+
+    private static int indexOfAny(String string, char first, char second) {
+        int a = string.indexOf(first);
+        int b = string.indexOf(second);
+        return (a < 0) ? b : (b < 0) ? a : Math.min(a, b);
+    }
+
+    static int compare(String left, String right) {
+        List<String> leftItems = items(left);
+        List<String> rightItems = items(right);
+        for (int i = 0; i < Math.max(leftItems.size(), rightItems.size()); i++) {
+            int result = compareItems(
+                (i < leftItems.size()) ? leftItems.get(i) : null,
+                (i < rightItems.size()) ? rightItems.get(i) : null);
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+
+    /** split at dots, dashes, and between digits and letters */
+    private static List<String> items(String version) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (char c : version.toLowerCase(Locale.ROOT).toCharArray()) {
+            boolean separator = c == '.' || c == '-';
+            if (separator || (item.length() > 0 && Character.isDigit(c) != Character.isDigit(item.charAt(0)))) {
+                items.add(item.toString());
+                item.setLength(0);
+            }
+            if (!separator)
+                item.append(c);
+        }
+        items.add(item.toString());
+        return items;
+    }
+
+    /** a missing item is like <code>0</code> or a release */
+    private static int compareItems(String left, String right) {
+        if (left == null)
+            return -compareItems(right, null);
+        boolean number = !left.isEmpty() && Character.isDigit(left.charAt(0));
+        if (right == null)
+            return number ? compareNumbers(left, "0") : compareQualifiers(left, "");
+        boolean otherNumber = !right.isEmpty() && Character.isDigit(right.charAt(0));
+        if (number && otherNumber)
+            return compareNumbers(left, right);
+        if (number != otherNumber)
+            return number ? 1 : -1;
+        return compareQualifiers(left, right);
+    }
+
+    private static int compareNumbers(String left, String right) {
+        String a = left.replaceFirst("^0+(?=.)", "");
+        String b = right.replaceFirst("^0+(?=.)", "");
+        return (a.length() != b.length()) ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+    }
+
+    private static int compareQualifiers(String left, String right) {
+        String a = alias(left);
+        String b = alias(right);
+        int result = Integer.compare(rank(a), rank(b));
+        return (result != 0) ? result : a.compareTo(b);
+    }
+
+    private static String alias(String qualifier) {
+        switch (qualifier) {
+        case "a":
+            return "alpha";
+        case "b":
+            return "beta";
+        case "m":
+            return "milestone";
+        case "cr":
+            return "rc";
+        case "ga":
+        case "final":
+        case "release":
+            return "";
+        default:
+            return qualifier;
+        }
+    }
+
+    private static int rank(String qualifier) {
+        int index = QUALIFIERS.indexOf(qualifier);
+        return (index < 0) ? QUALIFIERS.size() : index;
+    }
+}
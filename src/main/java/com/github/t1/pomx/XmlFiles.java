@@ -0,0 +1,91 @@
+package com.github.t1.pomx;
+
+import com.github.t1.xml.Xml;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/** Reads xml files through {@link FileChannel}s and writes them with {@link LockedFiles}, without intermediate Strings or byte arrays */
+class XmlFiles {
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+    static Xml load(Path path) { return load(path, false); }
+
+    /** optionally validate pomx files against the schema, see {@link PomxSchema} */
+    static Xml load(Path path, boolean validate) {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (validate)
+                return PomxSchema.load(path, new ByteBufferInputStream(buffer));
+            InputSource source = new InputSource(new ByteBufferInputStream(buffer));
+            source.setSystemId(path.toUri().toString());
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(source);
+            document.setDocumentURI(path.toUri().toString());
+            return new Xml(document);
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            throw new RuntimeException("can't load " + path, e);
+        }
+    }
+
+    static Document parse(String xml) {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            throw new RuntimeException("can't parse xml", e);
+        }
+    }
+
+    interface Content {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    static void write(String xml, Path path) { write(path, writer -> writer.write(xml)); }
+
+    /** coordinated with other writers, even in other processes; see {@link LockedFiles} */
+    static void write(Path path, Content content) {
+        try {
+            LockedFiles.write(path, out -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), WRITE_BUFFER_SIZE);
+                content.writeTo(writer);
+                writer.flush();
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("can't write " + path, e);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) { this.buffer = buffer; }
+
+        @Override public int read() { return buffer.hasRemaining() ? buffer.get() & 0xFF : -1; }
+
+        @Override public int read(byte[] bytes, int offset, int length) {
+            if (length == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override public int available() { return buffer.remaining(); }
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Converts fixed inputs and checks the allocated heap and the number of resolved profiles
+ * against the budgets checked in as <code>conversion-budgets.properties</code>, so e.g. a quadratic XPath query
+ * or a profile resolved repeatedly fails the normal build; the time only with the <code>scaling</code> tag.
+ * Raise a budget only when the extra cost is intended.
+ */
+class ConversionBudgetTest {
+    private static final Path INPUT = Paths.get("src/test/java/com/github/t1/pomx/input-pomx.xml");
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final Properties BUDGETS = new Properties();
+
+    @TempDir Path tmp;
+
+    @BeforeAll static void setup() throws IOException {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "thread allocation measurement not supported");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        try (InputStream stream = ConversionBudgetTest.class.getResourceAsStream("/conversion-budgets.properties")) {
+            BUDGETS.load(stream);
+        }
+    }
+
+    private static class CountingResolver implements Resolver {
+        private final Resolver delegate;
+        final AtomicInteger resolved = new AtomicInteger();
+
+        CountingResolver(Resolver delegate) { this.delegate = delegate; }
+
+        @Override public Path resolve(GAV gav, String type) {
+            resolved.incrementAndGet();
+            return delegate.resolve(gav, type);
+        }
+
+        @Override public List<Path> resolveAll(Collection<GAV> gavs, String type) {
+            return gavs.stream().map(gav -> resolve(gav, type)).collect(toList());
+        }
+
+        @Override public GAV resolveVersion(GAV gav) { return delegate.resolveVersion(gav); }
+    }
+
+    private static class Measurement {
+        long bytes = Long.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        int resolved = Integer.MAX_VALUE;
+    }
+
+    /** the best of a few runs after a warmup, so a GC pause or JIT compilation doesn't count */
+    private static Measurement measure(Path pomx, Resolver resolver) {
+        ProjectObjectModel.readFrom(pomx, resolver).asString();
+        long thread = Thread.currentThread().getId();
+        Measurement measurement = new Measurement();
+        for (int run = 0; run < 5; run++) {
+            CountingResolver counting = new CountingResolver(resolver);
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            ProjectObjectModel.readFrom(pomx, counting).asString();
+            measurement.nanos = Math.min(measurement.nanos, System.nanoTime() - start);
+            measurement.bytes = Math.min(measurement.bytes, THREADS.getThreadAllocatedBytes(thread) - allocatedBefore);
+            measurement.resolved = Math.min(measurement.resolved, counting.resolved.get());
+        }
+        return measurement;
+    }
+
+    private static void assertWithinBudget(String name, Measurement measurement) {
+        assertThat(measurement.bytes / 1024).describedAs(name + " allocated KiB")
+            .isLessThanOrEqualTo(budget(name, "allocated-kib"));
+        assertThat((long) measurement.resolved).describedAs(name + " resolved profiles")
+            .isLessThanOrEqualTo(budget(name, "resolved"));
+    }
+
+    /** the wall-clock time depends on the machine and its load, so it's only checked with the <code>scaling</code> tests */
+    private static void assertInTime(String name, Measurement measurement) {
+        assertThat(measurement.nanos / 1_000_000).describedAs(name + " ms").isLessThanOrEqualTo(budget(name, "millis"));
+    }
+
+    private static long budget(String name, String key) {
+        String value = BUDGETS.getProperty(name + "." + key);
+        assertThat(value).describedAs("budget " + name + "." + key).isNotNull();
+        return Long.parseLong(value);
+    }
+
+    private Measurement measureInputPomx() {
+        return measure(INPUT, new LocalRepositoryResolver(emptyList())); // nothing to resolve
+    }
+
+    private Measurement measureSyntheticPomx() {
+        ReactorGenerator reactor = new ReactorGenerator(tmp).withModules(1)
+            .withDependencies(300).withPlugins(100).withChainDepth(6).withDiamondDepth(3);
+        Path pomx = reactor.generate().get(0);
+        return measure(pomx, reactor.resolver());
+    }
+
+
+    @Test void shouldConvertInputPomxWithinBudget() { assertWithinBudget("input-pomx", measureInputPomx()); }
+
+    @Test void shouldConvertSyntheticPomxWithinBudget() { assertWithinBudget("synthetic", measureSyntheticPomx()); }
+
+    @Tag("scaling")
+    @Test void shouldConvertInputPomxInTime() { assertInTime("input-pomx", measureInputPomx()); }
+
+    @Tag("scaling")
+    @Test void shouldConvertSyntheticPomxInTime() { assertInTime("synthetic", measureSyntheticPomx()); }
+}
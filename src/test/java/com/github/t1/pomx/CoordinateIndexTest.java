@@ -0,0 +1,97 @@
+package com.github.t1.pomx;
+
+import com.github.t1.pomx.CoordinateIndex.Kind;
+import com.github.t1.pomx.CoordinateIndex.Usage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoordinateIndexTest {
+    private static final Path INPUT = Paths.get("src/test/java/com/github/t1/pomx/input-pomx.xml");
+
+    @TempDir Path tmp;
+
+    private Path module(String name, String content) throws Exception {
+        Path module = tmp.resolve(name);
+        Files.createDirectories(module);
+        Files.write(module.resolve("pomx.xml"), content.getBytes(UTF_8));
+        return module;
+    }
+
+    private static String pomx(String jar, String dependency) {
+        return ""
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<project xmlns=\"urn:xsd:maven:pomx:5.0.0\">\n"
+            + "    <jar>" + jar + "</jar>\n"
+            + "    <dependencies><compile><jar>" + dependency + "</jar></compile></dependencies>\n"
+            + "</project>\n";
+    }
+
+    private static List<String> strings(List<Usage> usages) { return usages.stream().map(Usage::toString).collect(toList()); }
+
+    @Test void shouldFindCoordinatesOfInputPomx() throws Exception {
+        Path module = module("a", new String(Files.readAllBytes(INPUT), UTF_8));
+        CoordinateIndex index = new CoordinateIndex(tmp, tmp.resolve("target/coordinates"));
+
+        assertThat(index.update()).isEqualTo(1);
+
+        assertThat(strings(index.usages(GAV.split("junit:junit"), null)))
+            .containsExactly(module + "\tdependency\tjunit:junit:4.12");
+        assertThat(strings(index.usages(GAV.split("org.pitest:pitest-maven:1.1.11"), Kind.PLUGIN)))
+            .containsExactly(module + "\tplugin\torg.pitest:pitest-maven:1.1.11");
+        assertThat(index.usages(GAV.split("org.pitest:pitest-maven:1.1.10"), null)).isEmpty();
+        assertThat(index.usages(GAV.split("junit:junit"), Kind.PLUGIN)).isEmpty();
+        assertThat(strings(index.usages(GAV.split("com.github.t1:pomx"), Kind.PROJECT)))
+            .containsExactly(module + "\tproject\tcom.github.t1:pomx:0.0.1-SNAPSHOT");
+    }
+
+    @Test void shouldFindCompactDependencyOfPlugin() throws Exception {
+        Path module = module("a", new String(Files.readAllBytes(Paths.get("src/test/resources/repository/dummy-group/"
+            + "profile-with-nested-dependency-in-plugin/1.0/profile-with-nested-dependency-in-plugin-1.0.xml")), UTF_8));
+        CoordinateIndex index = new CoordinateIndex(tmp, tmp.resolve("target/coordinates"));
+        index.update();
+
+        assertThat(strings(index.usages(GAV.split("org.sonatype.ossindex.maven:ossindex-maven-enforcer-rules"), Kind.PLUGIN)))
+            .containsExactly(module + "\tplugin\torg.sonatype.ossindex.maven:ossindex-maven-enforcer-rules:1.0.0");
+    }
+
+    @Test void shouldReadOnlyChangedPomxFilesAfterLoading() throws Exception {
+        Path file = tmp.resolve("target/coordinates");
+        module("a", pomx("com.example:a:1.0", "junit:junit:4.12"));
+        Path b = module("b", pomx("com.example:b:1.0", "junit:junit:4.12"));
+        module("target/c", pomx("com.example:c:1.0", "junit:junit:4.12"));
+        CoordinateIndex index = new CoordinateIndex(tmp, file);
+        assertThat(index.update()).isEqualTo(2);
+        index.save();
+
+        Files.write(b.resolve("pomx.xml"), pomx("com.example:b:1.0", "junit:junit:4.13.2").getBytes(UTF_8));
+        CoordinateIndex loaded = new CoordinateIndex(tmp, file);
+
+        assertThat(loaded.update()).isEqualTo(1);
+        assertThat(strings(loaded.usages(GAV.split("junit:junit"), Kind.DEPENDENCY))).containsExactly(
+            tmp.resolve("a") + "\tdependency\tjunit:junit:4.12",
+            b + "\tdependency\tjunit:junit:4.13.2");
+    }
+
+    @Test void shouldForgetDeletedModules() throws Exception {
+        Path file = tmp.resolve("target/coordinates");
+        Path a = module("a", pomx("com.example:a:1.0", "junit:junit:4.12"));
+        CoordinateIndex index = new CoordinateIndex(tmp, file);
+        index.update();
+        index.save();
+
+        Files.delete(a.resolve("pomx.xml"));
+        CoordinateIndex loaded = new CoordinateIndex(tmp, file);
+
+        assertThat(loaded.update()).isEqualTo(0);
+        assertThat(loaded.usages(GAV.split("junit:junit"), null)).isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.t1.pomx;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.ModelParseException;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class DomModelReaderTest {
+    private static final String RICH_POM = ""
+        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" child.project.url.inherit.append.path=\"false\">\n"
+        + "    <modelVersion>4.0.0</modelVersion>\n"
+        + "    <parent><groupId>g</groupId><artifactId>parent</artifactId><version>1</version></parent>\n"
+        + "    <artifactId> a </artifactId>\n"
+        + "    <packaging>pom</packaging>\n"
+        + "    <modules><module>one</module><module>two</module></modules>\n"
+        + "    <properties><x.y>z</x.y><empty/></properties>\n"
+        + "    <developers><developer><id>d</id><roles><role>lead</role></roles>"
+        + "<properties><k>v</k></properties></developer></developers>\n"
+        + "    <ciManagement><notifiers><notifier><sendOnError>false</sendOnError>"
+        + "<configuration><address>a@b</address></configuration></notifier></notifiers></ciManagement>\n"
+        + "    <scm child.scm.connection.inherit.append.path=\"false\"><url>u</url></scm>\n"
+        + "    <distributionManagement><repository><id>r</id><uniqueVersion>false</uniqueVersion></repository>"
+        + "<site child.site.url.inherit.append.path=\"false\"><id>s</id></site></distributionManagement>\n"
+        + "    <dependencyManagement><dependencies><dependency><groupId>g</groupId><artifactId>bom</artifactId>"
+        + "<type>pom</type><scope>import</scope></dependency></dependencies></dependencyManagement>\n"
+        + "    <dependencies><dependency><groupId>g</groupId><artifactId>d</artifactId><optional>true</optional>"
+        + "<exclusions><exclusion><groupId>*</groupId><artifactId>*</artifactId></exclusion></exclusions>"
+        + "</dependency></dependencies>\n"
+        + "    <build>\n"
+        + "        <resources><resource><directory>src</directory><includes><include>**</include></includes>"
+        + "</resource></resources>\n"
+        + "        <pluginManagement><plugins><plugin><artifactId>p</artifactId><extensions>true</extensions>"
+        + "<executions><execution><id>e</id><goals><goal>g1</goal><goal>g2</goal></goals>"
+        + "<configuration combine.children=\"append\"> <list><item> 1 </item><item>2</item></list><empty/>"
+        + "</configuration></execution></executions></plugin></plugins></pluginManagement>\n"
+        + "    </build>\n"
+        + "    <reporting><plugins><plugin><artifactId>r</artifactId><reportSets><reportSet>"
+        + "<reports><report>index</report></reports></reportSet></reportSets></plugin></plugins></reporting>\n"
+        + "    <profiles><profile><id>p</id><activation><activeByDefault>true</activeByDefault>"
+        + "<property><name>user.dir</name></property></activation>"
+        + "<build><plugins><plugin><artifactId>q</artifactId></plugin></plugins></build></profile></profiles>\n"
+        + "</project>\n";
+
+    private static String write(Model model) throws Exception {
+        StringWriter out = new StringWriter();
+        new MavenXpp3Writer().write(out, model);
+        return out.toString();
+    }
+
+    private static void assertSameAsMaven(String xml) throws Exception {
+        Model expected = new MavenXpp3Reader().read(new StringReader(xml), true);
+        expected.setModelEncoding("UTF-8");
+
+        Model model = DomModelReader.read(XmlFiles.parse(xml), true);
+
+        assertThat(write(model)).isEqualTo(write(expected));
+    }
+
+    @Test void shouldMapLikeMaven() throws Exception {
+        assertSameAsMaven(RICH_POM);
+    }
+
+    @Test void shouldMapExpectedPomLikeMaven() throws Exception {
+        assertSameAsMaven(new String(Files.readAllBytes(Paths.get("src/test/java/com/github/t1/pomx/expected-pom.xml")), UTF_8));
+    }
+
+    @Test void shouldFailOnUnknownElementWhenStrict() {
+        Throwable thrown = catchThrowable(() -> DomModelReader.read(XmlFiles.parse("<project><foo/></project>"), true));
+
+        assertThat(thrown).isInstanceOf(ModelParseException.class).hasMessageContaining("Unrecognised tag: 'foo'");
+    }
+
+    @Test void shouldIgnoreUnknownElementWhenLenient() throws Exception {
+        Model model = DomModelReader.read(XmlFiles.parse("<project><foo/><modules><dependency/><module>m</module>"
+            + "</modules></project>"), false);
+
+        assertThat(model.getModules()).containsExactly("m");
+    }
+
+    @Test void shouldFailOnDuplicateElementWhenStrict() {
+        Throwable thrown = catchThrowable(() -> DomModelReader.read(XmlFiles.parse(
+            "<project><artifactId>a</artifactId><artifactId>b</artifactId></project>"), true));
+
+        assertThat(thrown).isInstanceOf(ModelParseException.class).hasMessageContaining("Duplicated tag: 'artifactId'");
+    }
+}
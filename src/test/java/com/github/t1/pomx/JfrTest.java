@@ -0,0 +1,85 @@
+package com.github.t1.pomx;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.codehaus.plexus.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+class JfrTest {
+    private static final Path TEST_REPO = Paths.get("src/test/resources/repository");
+    private static final String POMX = ""
+        + "<project>"
+        + "<jar>foo:bar:1.0</jar>"
+        + "<profile>dummy-group:profile-with-nested-profile:1.0</profile>"
+        + "</project>";
+
+    @TempDir Path tmp;
+
+    private final Resolver resolver = new LocalRepositoryResolver(TEST_REPO);
+
+    private Path resolve(GAV gav, String type) { return TEST_REPO.resolve(gav.asPath(type)); }
+
+    private List<RecordedEvent> record(Runnable runnable) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable("com.github.t1.pomx.Convert");
+            recording.enable("com.github.t1.pomx.Resolve");
+            recording.enable("com.github.t1.pomx.ExpandExternalProfiles");
+            recording.start();
+            runnable.run();
+            recording.stop();
+            Path file = tmp.resolve("recording.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        }
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).collect(toList());
+    }
+
+    @Test void shouldRecordProfileResolutionAndExpansion() throws Exception {
+        List<RecordedEvent> events = record(() -> ProjectObjectModel.from(POMX, resolver).asString());
+
+        assertThat(events(events, "com.github.t1.pomx.Resolve"))
+            .extracting(event -> event.getString("gav"), event -> event.getString("path"), event -> event.getBoolean("cacheHit"))
+            .containsExactlyInAnyOrder(
+                tuple("dummy-group:profile-with-nested-profile:1.0",
+                    resolve(GAV.split("dummy-group:profile-with-nested-profile:1.0"), "xml").toString(), false),
+                tuple("dummy-group:dummy-profile:1.0",
+                    resolve(GAV.split("dummy-group:dummy-profile:1.0"), "xml").toString(), false));
+        assertThat(events(events, "com.github.t1.pomx.ExpandExternalProfiles"))
+            .extracting(event -> event.getInt("depth"), event -> event.getInt("profiles"))
+            .containsExactlyInAnyOrder(tuple(0, 1), tuple(1, 1));
+    }
+
+    @Test void shouldRecordConversion() throws Exception {
+        PomxModelLocator locator = new PomxModelLocator();
+        locator.log = mock(Logger.class);
+        locator.pomWriter = new PomWriter(false);
+        locator.convertedPoms = new ConvertedPoms();
+        locator.profileIndex = new ProfileIndex(null);
+        locator.memoryBound = new MemoryBound(0);
+        locator.profileCache = ProfileCache.NONE;
+        locator.resolver = resolver;
+        Files.write(tmp.resolve("pomx.xml"), POMX.getBytes(UTF_8));
+
+        List<RecordedEvent> events = record(() -> locator.locatePom(tmp.toFile()));
+
+        assertThat(events(events, "com.github.t1.pomx.Convert"))
+            .extracting(event -> event.getString("pomx"))
+            .containsExactly(tmp.resolve("pomx.xml").toString());
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class LocalRepositoryResolverTest {
+    @TempDir Path tmp;
+
+    private void install(Path repository, String... versions) throws Exception {
+        for (String version : versions) {
+            Path profile = repository.resolve(GAV.split("g:profile:" + version).asPath("xml"));
+            Files.createDirectories(profile.getParent());
+            Files.write(profile, "<project/>".getBytes());
+        }
+    }
+
+    private String resolveVersion(LocalRepositoryResolver resolver, String version) {
+        return resolver.resolveVersion(GAV.split("g:profile:" + version)).getVersion();
+    }
+
+    @Test void shouldResolveDynamicVersionsFromVersionDirectories() throws Exception {
+        install(tmp, "1.0", "1.9", "1.10", "2.0-SNAPSHOT", "2.0", "2.1-SNAPSHOT");
+        LocalRepositoryResolver resolver = new LocalRepositoryResolver(tmp);
+
+        assertThat(resolveVersion(resolver, "[1.0,1.11)")).isEqualTo("1.10");
+        assertThat(resolveVersion(resolver, "(,1.9]")).isEqualTo("1.9");
+        assertThat(resolveVersion(resolver, "[1.0]")).isEqualTo("1.0");
+        assertThat(resolveVersion(resolver, "(,1.0],[1.5,1.9]")).isEqualTo("1.9");
+        assertThat(resolveVersion(resolver, "RELEASE")).isEqualTo("2.0");
+        assertThat(resolveVersion(resolver, "LATEST")).isEqualTo("2.1-SNAPSHOT");
+    }
+
+    @Test void shouldResolveVersionFromAllRepositoriesButSkipFailedDownloads() throws Exception {
+        Path writable = tmp.resolve("writable");
+        Path shared = tmp.resolve("shared");
+        install(writable, "1.0");
+        install(shared, "1.1");
+        Path failed = writable.resolve("g/profile/1.2");
+        Files.createDirectories(failed);
+        Files.write(failed.resolve("profile-1.2.xml.lastUpdated"), new byte[0]);
+
+        String version = resolveVersion(new LocalRepositoryResolver(asList(writable, shared)), "[1.0,2.0)");
+
+        assertThat(version).isEqualTo("1.1");
+    }
+
+    @Test void shouldFailWithoutMatchingVersion() throws Exception {
+        install(tmp, "1.0");
+
+        Throwable thrown = catchThrowable(() -> resolveVersion(new LocalRepositoryResolver(tmp), "[2.0,)"));
+
+        assertThat(thrown).hasMessage("no version in [2.0,) found for g:profile in local repositories [" + tmp + "]");
+    }
+
+    @Test void shouldOrderVersionsLikeMaven() {
+        List<String> versions = asList("1.0-sp", "1.0", "1.0-SNAPSHOT", "1.0-rc1", "1.0-beta-2", "1.0-beta-10",
+            "1.0-alpha", "1.0.1", "0.9", "1.0-xyz");
+
+        List<String> sorted = versions.stream().sorted(Versions.ORDER).collect(toList());
+
+        assertThat(sorted).containsExactly("0.9", "1.0-alpha", "1.0-beta-2", "1.0-beta-10", "1.0-rc1",
+            "1.0-SNAPSHOT", "1.0", "1.0-sp", "1.0-xyz", "1.0.1");
+        assertThat(Versions.compare("1", "1.0.0")).isZero();
+        assertThat(Versions.compare("1.0-ga", "1.0")).isZero();
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LockedFilesTest {
+    private static final Path TEST_REPO = Paths.get("src/test/resources/repository");
+    private static final GAV DUMMY = GAV.split("dummy-group:dummy-profile:1.0");
+
+    @TempDir Path tmp;
+
+    private static String content(int writer) {
+        StringBuilder out = new StringBuilder();
+        for (int line = 0; line < 10_000; line++)
+            out.append(writer).append('\n');
+        return out.toString();
+    }
+
+    @Test void shouldNeverExposeTornFile() throws Exception {
+        Path file = tmp.resolve("pom.xml");
+        LockedFiles.write(file, out -> out.write(content(0).getBytes(UTF_8)));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                byte[] bytes = content(i).getBytes(UTF_8);
+                writers.add(executor.submit(() -> {
+                    for (int run = 0; run < 20; run++)
+                        LockedFiles.write(file, out -> out.write(bytes));
+                    return null;
+                }));
+            }
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                String read = new String(Files.readAllBytes(file), UTF_8);
+                assertThat(read).isIn(content(0), content(1), content(2), content(3));
+            }
+            for (Future<?> writer : writers)
+                writer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        try (Stream<Path> files = Files.list(tmp)) {
+            assertThat(files).describedAs("no temp files left").containsExactly(file);
+        }
+    }
+
+    @Test void shouldReplaceTargetOfSymbolicLinkWithItsPermissions() throws Exception {
+        Path target = Files.createDirectory(tmp.resolve("target")).resolve("pom.xml");
+        Files.write(target, "old".getBytes(UTF_8));
+        Files.setPosixFilePermissions(target, PosixFilePermissions.fromString("rw-rw-r--"));
+        Path link = Files.createSymbolicLink(tmp.resolve("pom.xml"), target);
+
+        LockedFiles.write(link, out -> out.write("new".getBytes(UTF_8)));
+
+        assertThat(Files.isSymbolicLink(link)).isTrue();
+        assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("new");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(target))).isEqualTo("rw-rw-r--");
+    }
+
+    @Test void shouldExpandProfileOnlyOnceForConcurrentRequests() throws Exception {
+        ProfileCache cache = ProfileCache.in(tmp.resolve("cache"));
+        Path profile = TEST_REPO.resolve(DUMMY.asPath("xml"));
+        AtomicInteger expansions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ProfileCache.Expanded> first = executor.submit(() -> cache.expand(DUMMY, profile, () -> {
+                started.countDown();
+                expansions.incrementAndGet();
+                sleep();
+                return new ProfileCache.Expanded(singletonList(profile), emptyList(), XmlFiles.load(profile));
+            }));
+            assertThat(started.await(5, SECONDS)).isTrue();
+            Future<ProfileCache.Expanded> second = executor.submit(() -> cache.expand(DUMMY, profile, () -> {
+                expansions.incrementAndGet();
+                return new ProfileCache.Expanded(singletonList(profile), emptyList(), XmlFiles.load(profile));
+            }));
+
+            assertThat(first.get().xml.toXmlString()).contains("xxx");
+            assertThat(second.get().xml.toXmlString()).contains("xxx");
+            assertThat(expansions).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test void shouldRemoveThreadLockWhenNoOtherThreadNeedsIt() throws Exception {
+        Path lockFile = tmp.resolve(".file.lock");
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> lockers = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                lockers.add(executor.submit(() -> {
+                    for (int run = 0; run < 200; run++)
+                        LockedFiles.locked(lockFile, () -> {
+                            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            inside.decrementAndGet();
+                            return null;
+                        });
+                    return null;
+                }));
+            for (Future<?> locker : lockers)
+                locker.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxInside).describedAs("threads holding the lock at the same time").hasValue(1);
+        assertThat(LockedFiles.isThreadLocked(lockFile)).isFalse();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
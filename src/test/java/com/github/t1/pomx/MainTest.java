@@ -0,0 +1,156 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+
+class MainTest {
+    @TempDir Path tmp;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private String run(String... args) throws Exception {
+        int exitCode = Main.run(new PrintStream(out, true, "UTF-8"), args);
+        assertThat(exitCode).describedAs(out.toString("UTF-8")).isEqualTo(0);
+        return out.toString("UTF-8");
+    }
+
+    private ReactorGenerator reactor() { return new ReactorGenerator(tmp).withModules(3).withChainDepth(2); }
+
+    private Path indexOf(ReactorGenerator reactor, List<Path> pomxs) {
+        Path file = tmp.resolve("profile-index");
+        ProfileIndex index = new ProfileIndex(file);
+        for (Path pomx : pomxs) {
+            ProjectObjectModel model = ProjectObjectModel.readFrom(pomx, reactor.resolver());
+            model.writeTo(pomx.resolveSibling("pom.xml"));
+            index.record(pomx.getParent(), model.getExpandedProfiles());
+        }
+        index.save();
+        return file;
+    }
+
+    @Test void shouldListModulesAffectedByNestedProfile() throws Exception {
+        ReactorGenerator reactor = reactor();
+        List<Path> pomxs = reactor.generate();
+        Path index = indexOf(reactor, pomxs);
+
+        String output = run("affected", "--index", index.toString(), "generated:chain-1");
+
+        assertThat(output.split("\n")).containsExactly(
+            pomxs.get(0).getParent().toString(),
+            pomxs.get(1).getParent().toString(),
+            pomxs.get(2).getParent().toString());
+    }
+
+    @Test void shouldReconvertAffectedModules() throws Exception {
+        ReactorGenerator reactor = reactor();
+        List<Path> pomxs = reactor.generate();
+        Path index = indexOf(reactor, pomxs);
+        Path profile = reactor.repository().resolve(GAV.split("generated:chain-1:1.0").asPath("xml"));
+        Files.write(profile, new String(Files.readAllBytes(profile), UTF_8)
+            .replace("<chain-1>true</chain-1>", "<chain-1>changed</chain-1>").getBytes(UTF_8));
+
+        String output = run("reconvert", "--index", index.toString(),
+            "--repository", reactor.repository().toString(), "generated:chain-1:1.0");
+
+        assertThat(output).contains("converted " + pomxs.get(0).getParent());
+        for (Path pomx : pomxs)
+            assertThat(contentOf(pomx.resolveSibling("pom.xml").toFile())).contains("<chain-1>changed</chain-1>");
+    }
+
+    @Test void shouldConvertOneModule() throws Exception {
+        ReactorGenerator reactor = reactor();
+        Path module = reactor.generate().get(1).getParent();
+
+        String output = run("convert", "--repository", reactor.repository().toString(), module.toString());
+
+        assertThat(output).isEqualTo("converted " + module + "\n");
+        assertThat(contentOf(module.resolve("pom.xml").toFile())).contains("<id>generated:chain-0</id>");
+    }
+
+    @Test void shouldListModulesUsingCoordinates() throws Exception {
+        List<Path> pomxs = reactor().generate();
+
+        String output = run("uses", "--root", tmp.toString(), "--kind", "profile", "generated:chain-0");
+
+        assertThat(output.split("\n")).containsExactly(
+            pomxs.get(0).getParent() + "\tprofile\tgenerated:chain-0:1.0",
+            pomxs.get(1).getParent() + "\tprofile\tgenerated:chain-0:1.0",
+            pomxs.get(2).getParent() + "\tprofile\tgenerated:chain-0:1.0");
+        assertThat(tmp.resolve("target/pomx-coordinates")).exists();
+    }
+
+    @Test void shouldWriteExpandedProfileNextToProfile() throws Exception {
+        ReactorGenerator reactor = reactor();
+        reactor.generate();
+        Path expanded = reactor.repository().resolve(GAV.split("generated:chain-0:expanded:1.0").asPath("xml"));
+
+        String output = run("expand", "--repository", reactor.repository().toString(), "generated:chain-0:1.0");
+
+        assertThat(output).isEqualTo("expanded generated:chain-0:1.0 with 1 nested profiles to " + expanded + "\n");
+        assertThat(contentOf(expanded.toFile())).contains(
+            "<chain-1>true</chain-1>",
+            "<expandedProfiles>",
+            "<profile>generated:chain-1:1.0</profile>");
+    }
+
+    @Test void shouldWriteExpandedProfileToFirstRepository() throws Exception {
+        ReactorGenerator reactor = reactor();
+        reactor.generate();
+        Path writable = tmp.resolve("writable");
+        Path expanded = writable.toAbsolutePath().resolve(GAV.split("generated:chain-0:expanded:1.0").asPath("xml"));
+
+        String output = run("expand", "--repository", writable + File.pathSeparator + reactor.repository(),
+            "generated:chain-0:1.0");
+
+        assertThat(output).isEqualTo("expanded generated:chain-0:1.0 with 1 nested profiles to " + expanded + "\n");
+        assertThat(contentOf(expanded.toFile())).contains("<expandedProfiles>");
+        assertThat(reactor.repository().resolve(GAV.split("generated:chain-0:expanded:1.0").asPath("xml")))
+            .describedAs("not next to the profile").doesNotExist();
+    }
+
+    @Test void shouldPrintModuleGraph() throws Exception {
+        reactor().generate();
+
+        String output = run("graph", tmp.toString());
+
+        assertThat(output).startsWith("{\n  \"modules\": [\n").contains(
+            "\"id\": \"generated:module-0000\"",
+            "\"path\": \"module-0000\"",
+            "\"id\": \"generated:root\"");
+    }
+
+    @Test void shouldPrintModuleGraphWithWeights() throws Exception {
+        reactor().generate();
+        Path weights = Files.write(tmp.resolve("weights"), ("# seconds\n"
+            + "generated:module-0001=12.5\n").getBytes(UTF_8));
+
+        String output = run("graph", "--weights", weights.toString(), tmp.toString());
+
+        assertThat(output).contains(""
+            + "      \"id\": \"generated:module-0001\",\n"
+            + "      \"path\": \"module-0001\",\n"
+            + "      \"dependsOn\": [],\n"
+            + "      \"weight\": 12.5\n", ""
+            + "  \"criticalPath\": {\n"
+            + "    \"weight\": 12.5,\n"
+            + "    \"modules\": [\"generated:module-0001\"]\n");
+    }
+
+    @Test void shouldPrintUsage() throws Exception {
+        int exitCode = Main.run(new PrintStream(out, true, "UTF-8"), "unknown");
+
+        assertThat(exitCode).isEqualTo(1);
+        assertThat(out.toString("UTF-8")).startsWith("usage: java -jar pomx.jar");
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ModuleGraphTest {
+    @TempDir Path tmp;
+
+    private void module(String name, String body) throws Exception {
+        Path module = tmp.resolve(name);
+        Files.createDirectories(module);
+        Files.write(module.resolve("pomx.xml"), (""
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<project xmlns=\"urn:xsd:maven:pomx:5.0.0\">\n"
+            + "    <jar>com.example:" + name + ":1.0</jar>\n"
+            + body
+            + "</project>\n").getBytes(UTF_8));
+    }
+
+    private static String compile(String... artifactIds) {
+        StringBuilder out = new StringBuilder("    <dependencies>\n        <compile>\n");
+        for (String artifactId : artifactIds)
+            out.append("            <jar>com.example:").append(artifactId).append(":1.0</jar>\n");
+        return out.append("            <jar>org.slf4j:slf4j-api:1.7.25</jar>\n")
+            .append("        </compile>\n    </dependencies>\n").toString();
+    }
+
+    private static List<String> ids(List<ModuleGraph.Module> modules) {
+        return modules.stream().map(module -> module.id).collect(toList());
+    }
+
+    private void diamond() throws Exception {
+        module("d", compile("b", "c"));
+        module("c", compile("a"));
+        module("b", ""
+            + "    <build>\n"
+            + "        <plugins>\n"
+            + "            <plugin id=\"com.example:a:1.0\"/>\n"
+            + "        </plugins>\n"
+            + "    </build>\n");
+        module("a", compile());
+    }
+
+    @Test void shouldSortModulesTopologically() throws Exception {
+        diamond();
+
+        ModuleGraph graph = ModuleGraph.scan(tmp, null);
+
+        assertThat(graph.modules().get("com.example:d").dependsOn).containsExactly("com.example:b", "com.example:c");
+        assertThat(graph.modules().get("com.example:b").dependsOn).containsExactly("com.example:a");
+        assertThat(ids(graph.topologicalOrder())).containsExactly(
+            "com.example:a", "com.example:b", "com.example:c", "com.example:d");
+    }
+
+    @Test void shouldFindCriticalPathByWeights() throws Exception {
+        diamond();
+        ModuleGraph graph = ModuleGraph.scan(tmp, null);
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("com.example:c", 10.0);
+
+        assertThat(ids(graph.criticalPath(emptyMap()))).containsExactly("com.example:a", "com.example:b", "com.example:d");
+        assertThat(ids(graph.criticalPath(weights))).containsExactly("com.example:a", "com.example:c", "com.example:d");
+    }
+
+    @Test void shouldWriteJson() throws Exception {
+        module("b", compile("a"));
+        module("a", compile());
+
+        String json = ModuleGraph.scan(tmp, null).toJson(tmp, emptyMap());
+
+        assertThat(json).isEqualTo(""
+            + "{\n"
+            + "  \"modules\": [\n"
+            + "    {\n"
+            + "      \"id\": \"com.example:a\",\n"
+            + "      \"path\": \"a\",\n"
+            + "      \"dependsOn\": [],\n"
+            + "      \"weight\": 1\n"
+            + "    },\n"
+            + "    {\n"
+            + "      \"id\": \"com.example:b\",\n"
+            + "      \"path\": \"b\",\n"
+            + "      \"dependsOn\": [\"com.example:a\"],\n"
+            + "      \"weight\": 1\n"
+            + "    }\n"
+            + "  ],\n"
+            + "  \"order\": [\"com.example:a\", \"com.example:b\"],\n"
+            + "  \"criticalPath\": {\n"
+            + "    \"weight\": 2,\n"
+            + "    \"modules\": [\"com.example:a\", \"com.example:b\"]\n"
+            + "  }\n"
+            + "}\n");
+    }
+
+    @Test void shouldResolveProjectAndOwnPropertiesInCoordinates() throws Exception {
+        module("a", compile());
+        module("b", compile());
+        module("c", ""
+            + "    <properties>\n"
+            + "        <sibling>b</sibling>\n"
+            + "    </properties>\n"
+            + "    <dependencies>\n"
+            + "        <compile>\n"
+            + "            <jar>${project.groupId}:a:${project.version}</jar>\n"
+            + "            <jar>com.example:${sibling}:1.0</jar>\n"
+            + "            <jar>${unknown.group}:d:1.0</jar>\n"
+            + "        </compile>\n"
+            + "    </dependencies>\n");
+
+        ModuleGraph graph = ModuleGraph.scan(tmp, null);
+
+        assertThat(graph.modules().get("com.example:c").dependsOn).containsExactly("com.example:a", "com.example:b");
+        assertThat(graph.warnings()).containsExactly("unresolved property in ${unknown.group}:d:1.0 of com.example:c");
+    }
+
+    @Test void shouldFailForCycle() throws Exception {
+        module("a", compile("b"));
+        module("b", compile("a"));
+        module("c", compile());
+        ModuleGraph graph = ModuleGraph.scan(tmp, null);
+
+        Throwable thrown = catchThrowable(graph::topologicalOrder);
+
+        assertThat(thrown).hasMessage("cycle between the modules [com.example:a, com.example:b]");
+    }
+}
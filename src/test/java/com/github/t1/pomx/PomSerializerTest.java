@@ -0,0 +1,46 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class PomSerializerTest {
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+    private static String serialize(String xml) { return PomSerializer.toString(XmlFiles.parse(xml)); }
+
+    @Test void shouldWriteEmptyElementsCommentsAndSortedAttributes() {
+        String xml = serialize("<project b=\"2\" a=\"1\"><!-- c --><e></e><f x=\"y\"/></project>");
+
+        assertThat(xml).isEqualTo(XML + "<project a=\"1\" b=\"2\"><!-- c --><e/><f x=\"y\"/></project>\n");
+    }
+
+    @Test void shouldEscapeText() {
+        String xml = serialize("<project>a&lt;b&gt;c&amp;d\"e'f&#13;gü😀</project>");
+
+        assertThat(xml).isEqualTo(XML + "<project>a&lt;b&gt;c&amp;d\"e'f&#xd;gü&#x1f600;</project>\n");
+    }
+
+    @Test void shouldEscapeAttributes() {
+        String xml = serialize("<project a=\"&lt;&gt;&amp;&quot;'&#9;&#10;&#13;\"/>");
+
+        assertThat(xml).isEqualTo(XML + "<project a=\"&lt;>&amp;&quot;'&#x9;&#xa;&#xd;\"/>\n");
+    }
+
+    @Test void shouldKeepCdataAndProcessingInstructions() {
+        String xml = serialize("<project><![CDATA[a<b]]><?pi data?></project>");
+
+        assertThat(xml).isEqualTo(XML + "<project><![CDATA[a<b]]><?pi data?></project>\n");
+    }
+
+    @Test void shouldFailOnInvalidCharacter() {
+        Document document = XmlFiles.parse("<project/>");
+        document.getDocumentElement().appendChild(document.createTextNode("\u0001"));
+
+        Throwable throwable = catchThrowable(() -> PomSerializer.toString(document));
+
+        assertThat(throwable).hasMessageContaining("invalid XML character");
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.contentOf;
+
+class PomWriterTest {
+    private final PomWriter writer = new PomWriter(true);
+
+    @TempDir Path tmp;
+
+    @Test void shouldWriteNewFileSynchronously() {
+        Path pom = tmp.resolve("pom.xml");
+
+        writer.write(pom, "<project/>");
+
+        assertThat(contentOf(pom.toFile())).isEqualTo("<project/>");
+    }
+
+    @Test void shouldOverwriteExistingFileInBackground() throws Exception {
+        Path pom = tmp.resolve("pom.xml");
+        Files.write(pom, "old".getBytes(UTF_8));
+
+        writer.write(pom, "<project>1</project>");
+        writer.write(pom, "<project>2</project>");
+        writer.flush();
+
+        assertThat(contentOf(pom.toFile())).isEqualTo("<project>2</project>");
+    }
+
+    @Test void shouldRethrowBackgroundFailureOnFlush() throws Exception {
+        Path dir = tmp.resolve("pom.xml");
+        Files.createDirectory(dir);
+
+        writer.write(dir, "<project/>");
+        Throwable throwable = catchThrowable(writer::flush);
+
+        assertThat(throwable).hasMessageContaining("can't write " + dir);
+    }
+}
@@ -1,6 +1,12 @@
 package com.github.t1.pomx;
 
 import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,19 +15,50 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 class PomxModelLocatorTest {
     private final PomxModelLocator locator = new PomxModelLocator();
 
     @TempDir Path tmp;
 
-    @BeforeEach void setUp() { locator.log = mock(Logger.class); }
+    @BeforeEach void setUp() {
+        locator.log = mock(Logger.class);
+        locator.pomWriter = new PomWriter(false);
+        locator.convertedPoms = new ConvertedPoms();
+        locator.versionCache = new VersionCache();
+        locator.profileIndex = new ProfileIndex(null);
+        locator.memoryBound = new MemoryBound(0);
+        locator.profileCache = ProfileCache.NONE;
+        locator.remoteCache = RemoteCache.NONE;
+    }
 
     @AfterEach void tearDown() throws Exception { Files.delete(tmp); }
 
@@ -48,4 +85,506 @@ class PomxModelLocatorTest {
                 Files.delete(pom.toPath());
         }
     }
+
+    private static final String POMX_WITH_PROFILE = ""
+        + "<project>"
+        + "<jar>foo:bar:1.0</jar>"
+        + "<profile>dummy-group:dummy-profile:1.0</profile>"
+        + "</project>";
+
+    private Path module(String name) throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve(name));
+        Files.write(dir.resolve("pomx.xml"), POMX_WITH_PROFILE.getBytes(UTF_8));
+        return dir;
+    }
+
+    private void deleteModules(Path... dirs) throws Exception {
+        for (Path dir : dirs) {
+            Files.deleteIfExists(dir.resolve("pomx.xml"));
+            Files.deleteIfExists(dir.resolve("pom.xml"));
+            Files.delete(dir);
+        }
+    }
+
+    private static final Path TEST_REPO = Paths.get("src/test/resources/repository");
+
+    private static Path testRepo(GAV gav, String type) {
+        return TEST_REPO.resolve(gav.asPath(type));
+    }
+
+    @Test void shouldShareRunningConversionOfSameModule() throws Exception {
+        Path dir = module("module");
+        AtomicInteger resolveCount = new AtomicInteger();
+        locator.resolver = new LocalRepositoryResolver(TEST_REPO) {
+            @Override public Path resolve(GAV gav, String type) {
+                resolveCount.incrementAndGet();
+                sleep(300);
+                return super.resolve(gav, type);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CyclicBarrier start = new CyclicBarrier(4);
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return locator.locatePom(dir.toFile());
+                }));
+            for (Future<File> future : futures)
+                assertThat(future.get(10, SECONDS)).isEqualTo(dir.resolve("pom.xml").toFile());
+
+            assertThat(resolveCount).hasValue(1);
+            verify(locator.log).info("convert " + dir + "/pomx.xml to " + dir + "/pom.xml");
+            assertThat(contentOf(dir.resolve("pom.xml").toFile())).contains("<finalName>xxx</finalName>");
+        } finally {
+            executor.shutdownNow();
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldConvertDifferentModulesInParallel() throws Exception {
+        Path a = module("a");
+        Path b = module("b");
+        CountDownLatch bothResolving = new CountDownLatch(2);
+        locator.resolver = new LocalRepositoryResolver(TEST_REPO) {
+            @Override public Path resolve(GAV gav, String type) {
+                bothResolving.countDown();
+                try {
+                    assertThat(bothResolving.await(10, SECONDS)).describedAs("resolving in parallel").isTrue();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return super.resolve(gav, type);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<File> pomA = executor.submit(() -> locator.locatePom(a.toFile()));
+            Future<File> pomB = executor.submit(() -> locator.locatePom(b.toFile()));
+
+            assertThat(pomA.get(20, SECONDS)).isEqualTo(a.resolve("pom.xml").toFile());
+            assertThat(pomB.get(20, SECONDS)).isEqualTo(b.resolve("pom.xml").toFile());
+        } finally {
+            executor.shutdownNow();
+            deleteModules(a, b);
+        }
+    }
+
+    @Test void shouldResolveProfilesWithOneAetherCall() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("batch"));
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:dummy-profile:1.0</profile>"
+            + "<profile>dummy-group:profile-with-scm:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        mockRepositorySystem();
+        try {
+            locator.locatePom(dir.toFile());
+
+            verify(locator.repositorySystem).resolveArtifacts(any(), argThat(requests -> requests.size() == 2));
+            verify(locator.repositorySystem, never()).resolveArtifact(any(), any());
+            assertThat(contentOf(dir.resolve("pom.xml").toFile()))
+                .contains("<finalName>xxx</finalName>", "<id>dummy-group:profile-with-scm</id>");
+        } finally {
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldFindProfilesInChainOfLocalRepositoriesWithoutAether() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("chain"));
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:profile-with-nested-profile:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        locator.repositorySystem = mock(RepositorySystem.class);
+        locator.localRepositories = new LocalRepositoryResolver(asList(
+            tmp.resolve("writable"), TEST_REPO));
+        try {
+            locator.locatePom(dir.toFile());
+
+            verifyNoMoreInteractions(locator.repositorySystem);
+            assertThat(contentOf(dir.resolve("pom.xml").toFile()))
+                .contains("<id>dummy-group:dummy-profile</id>", "<finalName>xxx</finalName>");
+        } finally {
+            deleteModules(dir);
+        }
+    }
+
+    private static final String SUREFIRE = ""
+        + "<plugin id=\"org.apache.maven.plugins:maven-surefire-plugin:2.22.0\">"
+        + "<configuration><skipTests>true</skipTests></configuration>"
+        + "</plugin>";
+
+    private static final String JAR = ""
+        + "<plugin id=\"org.apache.maven.plugins:maven-jar-plugin:3.1.1\">"
+        + "<configuration><skipIfEmpty>true</skipIfEmpty></configuration>"
+        + "</plugin>";
+
+    private static Path reactorModule(Path dir, String plugins) throws Exception {
+        return reactorModule(dir, "root", "jar", plugins);
+    }
+
+    private static Path reactorModule(Path dir, String parent, String packaging, String plugins) throws Exception {
+        Files.createDirectory(dir);
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>\n"
+            + "    <parent><groupId>foo</groupId><artifactId>" + parent + "</artifactId><version>1.0</version></parent>\n"
+            + "    <" + packaging + ">foo:" + dir.getFileName() + ":1.0</" + packaging + ">\n"
+            + "    <build>\n"
+            + "        <plugins>\n"
+            + "            " + plugins + "\n"
+            + "        </plugins>\n"
+            + "    </build>\n"
+            + "</project>\n").getBytes(UTF_8));
+        return dir;
+    }
+
+    private static Path reactorRoot(Path dir, String... modules) throws Exception {
+        Files.createDirectory(dir);
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<pom>foo:root:1.0</pom>"
+            + "<modules>" + Stream.of(modules).map(module -> "<module>" + module + "</module>").collect(joining()) + "</modules>"
+            + "</project>").getBytes(UTF_8));
+        return dir;
+    }
+
+    @Test void shouldHoistIdenticalPluginsIntoRoot() throws Exception {
+        Path root = reactorRoot(tmp.resolve("root"), "a", "b", "c");
+        // with different whitespace, but the same structure
+        Path a = reactorModule(root.resolve("a"), SUREFIRE.replace("<skipTests>", "\n    <skipTests>"));
+        Path b = reactorModule(root.resolve("b"), SUREFIRE);
+        Path c = reactorModule(root.resolve("c"), SUREFIRE + JAR);
+        locator.hoistPlugins = true;
+        try {
+            for (Path dir : asList(root, a, b, c))
+                locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(root.resolve("pom.xml").toFile())).containsSubsequence(
+                "<pluginManagement>", "<artifactId>maven-surefire-plugin</artifactId>",
+                "<version>2.22.0</version>", "<skipTests>true</skipTests>", "</pluginManagement>");
+            for (Path module : asList(a, b, c))
+                assertThat(contentOf(module.resolve("pom.xml").toFile()))
+                    .contains("<artifactId>maven-surefire-plugin</artifactId>")
+                    .doesNotContain("<version>2.22.0</version>", "skipTests");
+            assertThat(contentOf(root.resolve("pom.xml").toFile())).doesNotContain("maven-jar-plugin");
+            assertThat(contentOf(c.resolve("pom.xml").toFile()))
+                .contains("<version>3.1.1</version>", "<skipIfEmpty>true</skipIfEmpty>");
+        } finally {
+            deleteModules(a, b, c, root);
+        }
+    }
+
+    @Test void shouldNotHoistPluginConfiguredDifferentlyByAnyModule() throws Exception {
+        Path root = reactorRoot(tmp.resolve("root"), "a", "b", "c");
+        Path a = reactorModule(root.resolve("a"), SUREFIRE);
+        Path b = reactorModule(root.resolve("b"), SUREFIRE);
+        // the managed skipTests would be merged into this configuration
+        Path c = reactorModule(root.resolve("c"), SUREFIRE.replace("<skipTests>true</skipTests>", "<forkCount>2</forkCount>"));
+        locator.hoistPlugins = true;
+        try {
+            for (Path dir : asList(root, a, b, c))
+                locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(root.resolve("pom.xml").toFile())).doesNotContain("maven-surefire-plugin");
+            for (Path module : asList(a, b))
+                assertThat(contentOf(module.resolve("pom.xml").toFile()))
+                    .contains("<version>2.22.0</version>", "<skipTests>true</skipTests>");
+            assertThat(contentOf(c.resolve("pom.xml").toFile()))
+                .contains("<forkCount>2</forkCount>").doesNotContain("skipTests");
+        } finally {
+            deleteModules(a, b, c, root);
+        }
+    }
+
+    @Test void shouldNotHoistPluginConfiguredDifferentlyByModuleOfIntermediateParent() throws Exception {
+        Path root = reactorRoot(tmp.resolve("root"), "a", "b", "mid");
+        Path a = reactorModule(root.resolve("a"), SUREFIRE);
+        Path b = reactorModule(root.resolve("b"), SUREFIRE);
+        Path mid = reactorModule(root.resolve("mid"), "root", "pom", "");
+        Files.write(mid.resolve("pomx.xml"), new String(Files.readAllBytes(mid.resolve("pomx.xml")), UTF_8)
+            .replace("<build>", "<modules><module>d</module></modules>\n    <build>").getBytes(UTF_8));
+        Path d = reactorModule(mid.resolve("d"), "mid", "jar", SUREFIRE.replace("true", "false"));
+        locator.hoistPlugins = true;
+        try {
+            for (Path dir : asList(root, a, b, mid, d))
+                locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(root.resolve("pom.xml").toFile())).doesNotContain("maven-surefire-plugin");
+            for (Path module : asList(a, b))
+                assertThat(contentOf(module.resolve("pom.xml").toFile())).contains("<skipTests>true</skipTests>");
+        } finally {
+            deleteModules(d, a, b, mid, root);
+        }
+    }
+
+    @Test void shouldNotHoistPluginThatModuleDoesNotDeclare() throws Exception {
+        Path root = reactorRoot(tmp.resolve("root"), "a", "b", "c");
+        Path a = reactorModule(root.resolve("a"), SUREFIRE);
+        Path b = reactorModule(root.resolve("b"), SUREFIRE);
+        // the lifecycle binds surefire anyway, so it would get the managed configuration
+        Path c = reactorModule(root.resolve("c"), JAR);
+        locator.hoistPlugins = true;
+        try {
+            for (Path dir : asList(root, a, b, c))
+                locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(root.resolve("pom.xml").toFile())).doesNotContain("maven-surefire-plugin");
+        } finally {
+            deleteModules(a, b, c, root);
+        }
+    }
+
+    @Test void shouldNotHoistPluginConfiguredDifferentlyByRoot() throws Exception {
+        Path root = reactorRoot(tmp.resolve("root"), "a", "b");
+        Files.write(root.resolve("pomx.xml"), new String(Files.readAllBytes(root.resolve("pomx.xml")), UTF_8)
+            .replace("</project>", "<build><plugins>"
+                + SUREFIRE.replace("<skipTests>true</skipTests>", "<forkCount>2</forkCount>")
+                + "</plugins></build></project>").getBytes(UTF_8));
+        Path a = reactorModule(root.resolve("a"), SUREFIRE);
+        Path b = reactorModule(root.resolve("b"), SUREFIRE);
+        locator.hoistPlugins = true;
+        try {
+            for (Path dir : asList(root, a, b))
+                locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(root.resolve("pom.xml").toFile())).doesNotContain("<pluginManagement>");
+            for (Path module : asList(a, b))
+                assertThat(contentOf(module.resolve("pom.xml").toFile()))
+                    .contains("<version>2.22.0</version>", "<skipTests>true</skipTests>");
+        } finally {
+            deleteModules(a, b, root);
+        }
+    }
+
+    @Test void shouldReadVersionRangeMetadataOnce() throws Exception {
+        Path a = Files.createDirectory(tmp.resolve("a"));
+        Path b = Files.createDirectory(tmp.resolve("b"));
+        for (Path dir : asList(a, b))
+            Files.write(dir.resolve("pomx.xml"), (""
+                + "<project>"
+                + "<jar>foo:" + dir.getFileName() + ":1.0</jar>"
+                + "<profile>dummy-group:dummy-profile:[1.0,2.0)</profile>"
+                + "</project>").getBytes(UTF_8));
+        mockRepositorySystem();
+        when(locator.repositorySystem.resolveVersionRange(any(), any())).then(invocation ->
+            new VersionRangeResult(invocation.getArgument(1))
+                .setVersions(singletonList(new GenericVersionScheme().parseVersion("1.0"))));
+        try {
+            locator.locatePom(a.toFile());
+            locator.locatePom(b.toFile());
+
+            verify(locator.repositorySystem).resolveVersionRange(any(),
+                argThat(request -> request.getArtifact().getVersion().equals("[1.0,2.0)")));
+            assertThat(contentOf(b.resolve("pom.xml").toFile()))
+                .contains("<dummy-group.dummy-profile.version>1.0</dummy-group.dummy-profile.version>");
+        } finally {
+            deleteModules(a, b);
+        }
+    }
+
+    @Test void shouldShareConvertedPomThroughRemoteCache() throws Exception {
+        Path dir = module("remote");
+        try (StandInCacheServer server = new StandInCacheServer()) {
+            locator.remoteCache = server.client();
+            locator.resolver = new LocalRepositoryResolver(TEST_REPO);
+            locator.locatePom(dir.toFile());
+            String converted = contentOf(dir.resolve("pom.xml").toFile());
+            Files.delete(dir.resolve("pom.xml"));
+
+            PomxModelLocator otherAgent = new PomxModelLocator();
+            otherAgent.log = mock(Logger.class);
+            otherAgent.pomWriter = new PomWriter(false);
+            otherAgent.convertedPoms = new ConvertedPoms();
+            otherAgent.profileIndex = new ProfileIndex(null);
+            otherAgent.memoryBound = new MemoryBound(0);
+            otherAgent.profileCache = ProfileCache.NONE;
+            otherAgent.remoteCache = server.client();
+            otherAgent.resolver = new LocalRepositoryResolver(emptyList()); // fails to resolve anything
+            otherAgent.locatePom(dir.toFile());
+
+            assertThat(contentOf(dir.resolve("pom.xml").toFile())).isEqualTo(converted).contains("<finalName>xxx</finalName>");
+        } finally {
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldRecordNestedProfilesInIndexOnRemoteHit() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("indexed-remote"));
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:profile-with-nested-profile:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        Path indexFile = tmp.resolve("profile-index");
+        try (StandInCacheServer server = new StandInCacheServer()) {
+            locator.remoteCache = server.client();
+            locator.resolver = new LocalRepositoryResolver(TEST_REPO);
+            locator.locatePom(dir.toFile());
+
+            PomxModelLocator otherAgent = new PomxModelLocator();
+            otherAgent.log = mock(Logger.class);
+            otherAgent.pomWriter = new PomWriter(false);
+            otherAgent.convertedPoms = new ConvertedPoms();
+            otherAgent.profileIndex = new ProfileIndex(indexFile);
+            otherAgent.memoryBound = new MemoryBound(0);
+            otherAgent.profileCache = ProfileCache.NONE;
+            otherAgent.remoteCache = server.client();
+            otherAgent.resolver = new LocalRepositoryResolver(emptyList()); // fails to resolve anything
+            otherAgent.locatePom(dir.toFile());
+            otherAgent.profileIndex.save();
+
+            assertThat(new ProfileIndex(indexFile).modulesUsing(GAV.split("dummy-group:dummy-profile")))
+                .containsExactly(dir.toAbsolutePath());
+        } finally {
+            Files.deleteIfExists(indexFile);
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldNotShareConvertedPomWithNestedDynamicVersionThroughRemoteCache() throws Exception {
+        Path repo = tmp.resolve("repo");
+        Path profile = repo.resolve("dummy-group/profile-with-nested-range/1.0/profile-with-nested-range-1.0.xml");
+        Files.createDirectories(profile.getParent());
+        Files.write(profile, ("<project>"
+            + "<pom>dummy-group:profile-with-nested-range:1.0</pom>"
+            + "<profile>dummy-group:dummy-profile:[1.0,2.0)</profile>"
+            + "</project>").getBytes(UTF_8));
+        Path dir = Files.createDirectory(tmp.resolve("nested-range"));
+        Files.write(dir.resolve("pomx.xml"), ("<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:profile-with-nested-range:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        try (StandInCacheServer server = new StandInCacheServer()) {
+            locator.remoteCache = server.client();
+            locator.resolver = new LocalRepositoryResolver(asList(repo, TEST_REPO));
+            locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(dir.resolve("pom.xml").toFile())).contains("<finalName>xxx</finalName>");
+            assertThat(server.entries).describedAs("only the released dummy profile").hasSize(1);
+        } finally {
+            deleteModules(dir);
+            Files.delete(profile);
+            for (Path parent = profile.getParent(); !parent.equals(tmp); parent = parent.getParent())
+                Files.delete(parent);
+        }
+    }
+
+    @Test void shouldRecordNestedProfilesInIndex() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("indexed"));
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:profile-with-nested-profile:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        Path indexFile = tmp.resolve("profile-index");
+        locator.profileIndex = new ProfileIndex(indexFile);
+        locator.resolver = new LocalRepositoryResolver(TEST_REPO);
+        try {
+            locator.locatePom(dir.toFile());
+            locator.profileIndex.save();
+
+            assertThat(new ProfileIndex(indexFile).modulesUsing(GAV.split("dummy-group:dummy-profile")))
+                .containsExactly(dir.toAbsolutePath());
+        } finally {
+            Files.deleteIfExists(indexFile);
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldWriteConsumerPom() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("consumer"));
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:profile-with-dependencies:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        locator.consumerPom = true;
+        locator.resolver = new LocalRepositoryResolver(TEST_REPO);
+        try {
+            locator.locatePom(dir.toFile());
+
+            assertThat(contentOf(dir.resolve("pom.xml").toFile())).contains("<profiles>");
+            assertThat(contentOf(dir.resolve(PomxModelLocator.CONSUMER_POM).toFile()))
+                .contains("<artifactId>slf4j-api</artifactId>")
+                .doesNotContain("<profiles>");
+        } finally {
+            Files.deleteIfExists(dir.resolve(PomxModelLocator.CONSUMER_POM));
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldNotWriteConsumerPomForParent() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("consumer-parent"));
+        Files.write(dir.resolve("pomx.xml"), ("<project><pom>foo:parent:1.0</pom></project>").getBytes(UTF_8));
+        locator.consumerPom = true;
+        try {
+            locator.locatePom(dir.toFile());
+
+            assertThat(dir.resolve("pom.xml")).exists();
+            assertThat(dir.resolve(PomxModelLocator.CONSUMER_POM)).doesNotExist();
+        } finally {
+            Files.deleteIfExists(dir.resolve(PomxModelLocator.CONSUMER_POM));
+            deleteModules(dir);
+        }
+    }
+
+    @Test void shouldShareConsumerPomThroughRemoteCache() throws Exception {
+        Path dir = Files.createDirectory(tmp.resolve("consumer-remote"));
+        Files.write(dir.resolve("pomx.xml"), (""
+            + "<project>"
+            + "<jar>foo:bar:1.0</jar>"
+            + "<profile>dummy-group:profile-with-dependencies:1.0</profile>"
+            + "</project>").getBytes(UTF_8));
+        try (StandInCacheServer server = new StandInCacheServer()) {
+            locator.consumerPom = true;
+            locator.remoteCache = server.client();
+            locator.resolver = new LocalRepositoryResolver(TEST_REPO);
+            locator.locatePom(dir.toFile());
+            String consumer = contentOf(dir.resolve(PomxModelLocator.CONSUMER_POM).toFile());
+            Files.delete(dir.resolve(PomxModelLocator.CONSUMER_POM));
+
+            PomxModelLocator otherAgent = new PomxModelLocator();
+            otherAgent.log = mock(Logger.class);
+            otherAgent.pomWriter = new PomWriter(false);
+            otherAgent.convertedPoms = new ConvertedPoms();
+            otherAgent.profileIndex = new ProfileIndex(null);
+            otherAgent.memoryBound = new MemoryBound(0);
+            otherAgent.profileCache = ProfileCache.NONE;
+            otherAgent.remoteCache = server.client();
+            otherAgent.consumerPom = true;
+            otherAgent.resolver = new LocalRepositoryResolver(emptyList()); // fails to resolve anything
+            otherAgent.locatePom(dir.toFile());
+
+            assertThat(contentOf(dir.resolve(PomxModelLocator.CONSUMER_POM).toFile()))
+                .isEqualTo(consumer).contains("<artifactId>slf4j-api</artifactId>");
+        } finally {
+            Files.deleteIfExists(dir.resolve(PomxModelLocator.CONSUMER_POM));
+            deleteModules(dir);
+        }
+    }
+
+    private void mockRepositorySystem() throws Exception {
+        locator.localRepositories = new LocalRepositoryResolver(tmp.resolve("empty-repository"));
+        locator.repositorySystem = mock(RepositorySystem.class);
+        when(locator.repositorySystem.resolveArtifacts(any(), any())).then(invocation -> {
+            Collection<ArtifactRequest> requests = invocation.getArgument(1);
+            return requests.stream().map(request -> {
+                Artifact artifact = request.getArtifact();
+                GAV gav = new GAV(artifact.getGroupId(), artifact.getArtifactId(), null, artifact.getVersion());
+                return new ArtifactResult(request).setArtifact(artifact.setFile(testRepo(gav, "xml").toFile()));
+            }).collect(toList());
+        });
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,87 @@
+package com.github.t1.pomx;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelProcessor;
+import org.codehaus.plexus.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PomxModelReaderTest {
+    private final PomxModelLocator locator = new PomxModelLocator();
+    private final PomxModelReader reader = new PomxModelReader();
+    private final ConvertedPoms convertedPoms = new ConvertedPoms();
+
+    @TempDir Path tmp;
+
+    @BeforeEach void setUp() {
+        locator.log = mock(Logger.class);
+        locator.pomWriter = new PomWriter(false);
+        locator.convertedPoms = convertedPoms;
+        locator.profileIndex = new ProfileIndex(null);
+        locator.memoryBound = new MemoryBound(0);
+        reader.convertedPoms = convertedPoms;
+    }
+
+    private File convert() throws Exception {
+        Files.write(tmp.resolve("pomx.xml"), ("<project><jar>foo:bar:1.0</jar></project>").getBytes(UTF_8));
+        File pom = locator.locatePom(tmp.toFile());
+        Files.write(pom.toPath(), "not a pom".getBytes(UTF_8)); // proves that the file is not read
+        return pom;
+    }
+
+    @Test void shouldReadConvertedPomFileFromMemory() throws Exception {
+        File pom = convert();
+
+        Model model = reader.read(pom, null);
+
+        assertThat(model.getArtifactId()).isEqualTo("bar");
+        assertThat(model.getPomFile()).isEqualTo(pom);
+    }
+
+    @Test void shouldReadConvertedPomStreamFromMemory() throws Exception {
+        File pom = convert();
+        Map<String, Object> options = new HashMap<>();
+        options.put(ModelProcessor.SOURCE, new FileModelSource(pom));
+
+        Model model;
+        try (InputStream stream = Files.newInputStream(pom.toPath())) {
+            model = reader.read(stream, options);
+        }
+
+        assertThat(model.getGroupId()).isEqualTo("foo");
+        assertThat(model.getVersion()).isEqualTo("1.0");
+    }
+
+    @Test void shouldDropConvertedTreeButReadPomAgainFromMemory() throws Exception {
+        File pom = convert();
+        reader.read(pom, null);
+
+        Model model = reader.read(pom, null);
+
+        assertThat(convertedPoms.takeDocument(pom.toPath())).isEmpty();
+        assertThat(model.getArtifactId()).isEqualTo("bar");
+        assertThat(model.getPomFile()).isEqualTo(pom);
+    }
+
+    @Test void shouldReadPlainPomFromFile() throws Exception {
+        Path pom = tmp.resolve("pom.xml");
+        Files.write(pom, ("<project><modelVersion>4.0.0</modelVersion><artifactId>baz</artifactId></project>").getBytes(UTF_8));
+
+        Model model = reader.read(pom.toFile(), null);
+
+        assertThat(model.getArtifactId()).isEqualTo("baz");
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class PomxSchemaTest {
+    private static final Path TEST_REPO = Paths.get("src/test/resources/repository");
+    private static final Path INPUT = Paths.get("src/test/java/com/github/t1/pomx/input-pomx.xml");
+
+    @TempDir Path tmp;
+
+    private final Resolver resolver = new LocalRepositoryResolver(TEST_REPO);
+
+    private Path pomx(String body) throws Exception {
+        Path pomx = tmp.resolve("pomx.xml");
+        Files.write(pomx, ("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<project xmlns=\"urn:xsd:maven:pomx:5.0.0\">\n"
+            + body
+            + "</project>\n").getBytes(UTF_8));
+        return pomx;
+    }
+
+    @Test void shouldConvertValidatedPomxLikeUnvalidated() {
+        String unvalidated = ProjectObjectModel.readFrom(INPUT, resolver).asString();
+
+        String validated = ProjectObjectModel.readFrom(INPUT, resolver, true).asString();
+
+        assertThat(validated).isEqualTo(unvalidated);
+    }
+
+    @Test void shouldValidateExternalProfiles() throws Exception {
+        Path pomx = pomx(""
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <profile>dummy-group:profile-with-nested-dependency-in-plugin:1.0</profile>\n");
+
+        String xml = ProjectObjectModel.readFrom(pomx, resolver, true).asString();
+
+        assertThat(xml).contains("<artifactId>ossindex-maven-enforcer-rules</artifactId>");
+    }
+
+    @Test void shouldFailForElementsOutOfOrder() throws Exception {
+        Path pomx = pomx(""
+            + "    <name>foo</name>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n");
+
+        Throwable throwable = catchThrowable(() -> ProjectObjectModel.readFrom(pomx, resolver, true));
+
+        assertThat(throwable).hasMessageStartingWith("invalid pomx " + pomx + ":4:").hasMessageContaining("jar");
+    }
+
+    @Test void shouldNotValidatePlainPom() {
+        ProjectObjectModel pom = ProjectObjectModel.readFrom(Paths.get("pom.xml"), resolver, true);
+
+        assertThat(pom.getGav()).isEqualTo(GAV.split("com.github.t1:pomx:0.0.1-SNAPSHOT"));
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileCacheTest {
+    private static final Path TEST_REPO = Paths.get("src/test/resources/repository");
+    private static final GAV NESTED = GAV.split("dummy-group:profile-with-nested-profile:1.0");
+    private static final GAV DUMMY = GAV.split("dummy-group:dummy-profile:1.0");
+
+    @TempDir Path tmp;
+
+    private final Resolver resolver = new LocalRepositoryResolver(TEST_REPO);
+
+    private Path resolve(GAV gav, String type) { return TEST_REPO.resolve(gav.asPath(type)); }
+
+    private static String pomxWithProfile(GAV gav) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <profile>" + gav.getGroupId() + ":" + gav.getArtifactId() + ":" + gav.getVersion() + "</profile>\n"
+            + "</project>\n";
+    }
+
+    @Test void shouldStoreNestedProfilesAndExpandFromCache() {
+        ProfileCache cache = ProfileCache.in(tmp.resolve("cache"));
+        String uncached = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).asString();
+
+        String first = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(cache).asString();
+        String second = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(cache).asString();
+
+        assertThat(cache.load(NESTED, resolve(NESTED, "xml"))).isPresent();
+        assertThat(cache.load(DUMMY, resolve(DUMMY, "xml"))).isPresent();
+        assertThat(first).isEqualTo(uncached);
+        assertThat(second).isEqualTo(uncached);
+    }
+
+    @Test void shouldIgnoreStaleEntryWhenProfileChanges() throws Exception {
+        ProfileCache cache = ProfileCache.in(tmp.resolve("cache"));
+        Path repo = tmp.resolve("repo");
+        Path profile = repo.resolve(DUMMY.asPath("xml"));
+        Files.createDirectories(profile.getParent());
+        Files.copy(resolve(DUMMY, "xml"), profile);
+        Resolver resolver = new LocalRepositoryResolver(repo);
+        ProjectObjectModel.from(pomxWithProfile(DUMMY), resolver).withProfileCache(cache).asString();
+
+        Files.write(profile, new String(Files.readAllBytes(profile), UTF_8).replace("xxx", "yyy").getBytes(UTF_8));
+        String xml = ProjectObjectModel.from(pomxWithProfile(DUMMY), resolver).withProfileCache(cache).asString();
+
+        assertThat(xml).contains("<finalName>yyy</finalName>");
+    }
+
+    @Test void shouldTreatCorruptEntryAsMiss() throws Exception {
+        ProfileCache cache = ProfileCache.in(tmp.resolve("cache"));
+        Path location = cache.location(DUMMY, resolve(DUMMY, "xml"));
+        Files.createDirectories(location.getParent());
+        Files.write(location, new byte[]{1, 2, 3});
+
+        String xml = ProjectObjectModel.from(pomxWithProfile(DUMMY), resolver).withProfileCache(cache).asString();
+
+        assertThat(xml).contains("<finalName>xxx</finalName>");
+    }
+
+    @Test void shouldShareReleasedProfilesThroughRemoteCache() throws Exception {
+        try (StandInCacheServer server = new StandInCacheServer()) {
+            String uncached = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).asString();
+            ProfileCache first = ProfileCache.in(tmp.resolve("first")).withRemote(server.client());
+            ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(first).asString();
+
+            ProfileCache second = ProfileCache.in(tmp.resolve("second")).withRemote(server.client());
+            String xml = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(second).asString();
+
+            assertThat(xml).isEqualTo(uncached);
+            assertThat(server.entries).hasSize(2); // the nested profile and its nested profile
+            assertThat(server.gets).hasValue(3); // two misses for the first, one hit for the second
+            assertThat(second.load(NESTED, resolve(NESTED, "xml"))).describedAs("stored locally").isPresent();
+        }
+    }
+
+    @Test void shouldNotShareProfilesWithNestedDynamicVersionThroughRemoteCache() throws Exception {
+        Path repo = tmp.resolve("repo");
+        GAV outer = GAV.split("dummy-group:profile-with-nested-range:1.0");
+        Path profile = repo.resolve(outer.asPath("xml"));
+        Files.createDirectories(profile.getParent());
+        Files.write(profile, ("<project>"
+            + "<pom>dummy-group:profile-with-nested-range:1.0</pom>"
+            + "<profile>dummy-group:dummy-profile:[1.0,2.0)</profile>"
+            + "</project>").getBytes(UTF_8));
+        Files.createDirectories(repo.resolve(DUMMY.asPath("xml")).getParent());
+        Files.copy(resolve(DUMMY, "xml"), repo.resolve(DUMMY.asPath("xml")));
+        Resolver resolver = new LocalRepositoryResolver(repo);
+        try (StandInCacheServer server = new StandInCacheServer()) {
+            ProfileCache cache = ProfileCache.NONE.withRemote(server.client());
+
+            String xml = ProjectObjectModel.from(pomxWithProfile(outer), resolver).withProfileCache(cache).asString();
+
+            assertThat(xml).contains("<finalName>xxx</finalName>");
+            assertThat(server.entries).describedAs("only the released dummy profile").hasSize(1);
+        }
+    }
+
+    @Test void shouldNotCacheProfilesWithNestedDynamicVersion() throws Exception {
+        Path repo = tmp.resolve("repo");
+        GAV outer = GAV.split("dummy-group:profile-with-nested-range:1.0");
+        Path profile = repo.resolve(outer.asPath("xml"));
+        Files.createDirectories(profile.getParent());
+        Files.write(profile, ("<project>"
+            + "<pom>dummy-group:profile-with-nested-range:1.0</pom>"
+            + "<profile>dummy-group:dummy-profile:[1.0,2.0)</profile>"
+            + "</project>").getBytes(UTF_8));
+        Files.createDirectories(repo.resolve(DUMMY.asPath("xml")).getParent());
+        Files.copy(resolve(DUMMY, "xml"), repo.resolve(DUMMY.asPath("xml")));
+        ProfileCache cache = ProfileCache.in(tmp.resolve("cache")).withMemory(new ProfileCache.Trees(1024 * 1024));
+        ProjectObjectModel.from(pomxWithProfile(outer), new LocalRepositoryResolver(repo)).withProfileCache(cache).asString();
+
+        GAV newer = GAV.split("dummy-group:dummy-profile:1.1");
+        Files.createDirectories(repo.resolve(newer.asPath("xml")).getParent());
+        Files.write(repo.resolve(newer.asPath("xml")), new String(Files.readAllBytes(resolve(DUMMY, "xml")), UTF_8)
+            .replace("dummy-profile:1.0", "dummy-profile:1.1").replace("xxx", "yyy").getBytes(UTF_8));
+        String xml = ProjectObjectModel.from(pomxWithProfile(outer), new LocalRepositoryResolver(repo))
+            .withProfileCache(cache).asString();
+
+        assertThat(xml).contains("<finalName>yyy</finalName>");
+        assertThat(cache.load(outer, profile)).isEmpty();
+    }
+
+    @Test void shouldExpandFromFreshTreesInMemory() {
+        ProfileCache.Trees trees = new ProfileCache.Trees(1024 * 1024);
+        ProfileCache cache = ProfileCache.NONE.withMemory(trees);
+        String uncached = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).asString();
+
+        ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(cache).asString();
+        String second = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(cache).asString();
+        String third = ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(cache).asString();
+
+        assertThat(trees.size()).isEqualTo(2);
+        assertThat(second).isEqualTo(uncached);
+        assertThat(third).isEqualTo(uncached);
+    }
+
+    @Test void shouldIgnoreStaleTreeInMemoryWhenProfileChanges() throws Exception {
+        ProfileCache cache = ProfileCache.NONE.withMemory(new ProfileCache.Trees(1024 * 1024));
+        Path repo = tmp.resolve("repo");
+        Path profile = repo.resolve(DUMMY.asPath("xml"));
+        Files.createDirectories(profile.getParent());
+        Files.copy(resolve(DUMMY, "xml"), profile);
+        Resolver resolver = new LocalRepositoryResolver(repo);
+        ProjectObjectModel.from(pomxWithProfile(DUMMY), resolver).withProfileCache(cache).asString();
+
+        Files.write(profile, new String(Files.readAllBytes(profile), UTF_8).replace("xxx", "yyy").getBytes(UTF_8));
+        Files.setLastModifiedTime(profile, FileTime.fromMillis(profile.toFile().lastModified() + 2000));
+        String xml = ProjectObjectModel.from(pomxWithProfile(DUMMY), resolver).withProfileCache(cache).asString();
+
+        assertThat(xml).contains("<finalName>yyy</finalName>");
+    }
+
+    @Test void shouldSubtractTreesClearedByGarbageCollector() {
+        ProfileCache.Trees trees = new ProfileCache.Trees(1024 * 1024);
+        ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(ProfileCache.NONE.withMemory(trees))
+            .asString();
+        long bytes = trees.bytes();
+
+        trees.collect(resolve(DUMMY, "xml"));
+
+        assertThat(trees.size()).isEqualTo(1);
+        assertThat(trees.bytes()).isLessThan(bytes).isPositive();
+    }
+
+    @Test void shouldEvictLeastRecentlyUsedTreesBeyondLimit() {
+        ProfileCache.Trees unbounded = new ProfileCache.Trees(Long.MAX_VALUE);
+        ProjectObjectModel.from(pomxWithProfile(NESTED), resolver)
+            .withProfileCache(ProfileCache.NONE.withMemory(unbounded)).asString();
+        ProfileCache.Trees bounded = new ProfileCache.Trees(unbounded.bytes() - 1);
+        ProfileCache cache = ProfileCache.NONE.withMemory(bounded);
+
+        ProjectObjectModel.from(pomxWithProfile(NESTED), resolver).withProfileCache(cache).asString();
+
+        assertThat(unbounded.size()).isEqualTo(2);
+        assertThat(bounded.size()).isEqualTo(1);
+        assertThat(bounded.bytes()).isLessThan(unbounded.bytes());
+        assertThat(cache.load(NESTED, resolve(NESTED, "xml"))).describedAs("the most recently stored").isPresent();
+    }
+}
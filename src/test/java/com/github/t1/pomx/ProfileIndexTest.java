@@ -0,0 +1,74 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileIndexTest {
+    private static final GAV COMPANY_1 = GAV.split("com.example:company:1.0-SNAPSHOT");
+    private static final GAV COMPANY_2 = GAV.split("com.example:company:2.0-SNAPSHOT");
+    private static final GAV JAVAEE = GAV.split("com.example:javaee:7.0");
+
+    @TempDir Path tmp;
+
+    @Test void shouldFindModulesByProfileWithAndWithoutVersion() {
+        ProfileIndex index = new ProfileIndex(tmp.resolve("index"));
+        index.record(tmp.resolve("a"), asList(JAVAEE, COMPANY_1));
+        index.record(tmp.resolve("b"), singletonList(COMPANY_2));
+        index.record(tmp.resolve("c"), singletonList(JAVAEE));
+
+        assertThat(index.modulesUsing(COMPANY_1)).containsExactly(tmp.resolve("a"));
+        assertThat(index.modulesUsing(GAV.split("com.example:company"))).containsExactly(tmp.resolve("a"), tmp.resolve("b"));
+        assertThat(index.modulesUsing(GAV.split("com.example:unknown"))).isEmpty();
+    }
+
+    @Test void shouldStoreModulesRelativeToIndexFile() throws Exception {
+        Path file = tmp.resolve("index");
+        ProfileIndex index = new ProfileIndex(file);
+        index.record(tmp.resolve("a"), asList(JAVAEE, COMPANY_1));
+        index.record(tmp.resolve("b/c"), singletonList(COMPANY_2));
+
+        index.save();
+
+        assertThat(new String(Files.readAllBytes(file), UTF_8)).isEqualTo(""
+            + "a\tcom.example:javaee:7.0\tcom.example:company:1.0-SNAPSHOT\n"
+            + "b/c\tcom.example:company:2.0-SNAPSHOT\n");
+        assertThat(new ProfileIndex(file).modulesUsing(GAV.split("com.example:company")))
+            .containsExactly(tmp.resolve("a"), tmp.resolve("b/c"));
+    }
+
+    @Test void shouldReplaceProfilesOfReconvertedModule() {
+        Path file = tmp.resolve("index");
+        ProfileIndex index = new ProfileIndex(file);
+        index.record(tmp.resolve("a"), singletonList(COMPANY_1));
+        index.save();
+
+        ProfileIndex next = new ProfileIndex(file);
+        next.record(tmp.resolve("a"), singletonList(JAVAEE));
+        next.save();
+
+        assertThat(new ProfileIndex(file).modulesUsing(COMPANY_1)).isEmpty();
+        assertThat(new ProfileIndex(file).modulesUsing(JAVAEE)).containsExactly(tmp.resolve("a"));
+    }
+
+    @Test void shouldMergeModulesRecordedByOtherProcess() {
+        Path file = tmp.resolve("index");
+        ProfileIndex build = new ProfileIndex(file);
+        ProfileIndex ide = new ProfileIndex(file);
+        build.record(tmp.resolve("a"), singletonList(COMPANY_1));
+        ide.record(tmp.resolve("b"), singletonList(COMPANY_2));
+
+        build.save();
+        ide.save();
+
+        assertThat(new ProfileIndex(file).modulesUsing(GAV.split("com.example:company")))
+            .containsExactly(tmp.resolve("a"), tmp.resolve("b"));
+    }
+}
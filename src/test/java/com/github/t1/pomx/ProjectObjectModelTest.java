@@ -2,28 +2,31 @@ package com.github.t1.pomx;
 
 import com.github.t1.xml.Xml;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import static com.github.t1.pomx.PomxModelLocator.REPOSITORY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.contentOf;
 
 class ProjectObjectModelTest {
     private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
-    private static final String JDK8_NS = ""
+    private static final String NS = ""
         + "xmlns=\"http://maven.apache.org/POM/4.0.0\" "
         + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
         + "xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\"";
-    private static final String JDK9_NS = ""
-        + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
-        + "xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\"";
-    private static final String NS = (isJdk9() ? JDK9_NS : JDK8_NS);
-    private static final String WARNING = warning(isJdk9() ? "nil:- -" : "nil:--");
+    private static final String WARNING = warning("nil:--");
     private static final String HEAD = XML + "\n<project " + NS + ">\n" + WARNING;
 
     private static String warning(Object source) {
@@ -39,16 +42,12 @@ class ProjectObjectModelTest {
 
     private static final Path TEST_REPO = Paths.get("src/test/resources/repository");
 
-    private static boolean isJdk9() {
-        return Double.parseDouble(System.getProperty("java.specification.version")) >= 9.0;
-    }
-
-    private Path resolve(GAV gav, String type) { return TEST_REPO.resolve(gav.asPath(type)); }
+    private final Resolver resolver = new LocalRepositoryResolver(TEST_REPO);
 
 
     @Test void shouldLeaveRealPomMoreOrLessAsIs() {
         Path path = Paths.get("pom.xml");
-        ProjectObjectModel pom = ProjectObjectModel.readFrom(path, this::resolve);
+        ProjectObjectModel pom = ProjectObjectModel.readFrom(path, resolver);
 
         String xml = pom.asString();
 
@@ -64,14 +63,13 @@ class ProjectObjectModelTest {
     @Test void shouldWritePom() throws Exception {
         String folder = "src/test/java/com/github/t1/pomx/";
         ProjectObjectModel pom = ProjectObjectModel.readFrom(Paths.get(folder + "input-pomx.xml"),
-            (gav, type) -> REPOSITORY.resolve(gav.asPath(type)));
+            new LocalRepositoryResolver(REPOSITORY));
         Path target = Paths.get("target/test-pom.xml");
         try {
             pom.writeTo(target);
 
             assertThat(contentOf(target.toFile()))
-                .isEqualTo(contentOf(new File(folder + "expected-pom.xml"))
-                    .replace(JDK8_NS, NS));
+                .isEqualTo(contentOf(new File(folder + "expected-pom.xml")));
         } finally {
             Files.deleteIfExists(target);
         }
@@ -83,7 +81,7 @@ class ProjectObjectModelTest {
             + "         xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
             + "         xsi:schemaLocation=\"urn:xsd:maven:pomx:5.0.0 "
             + "https://raw.githubusercontent.com/t1/pomx/master/src/main/resources/schemas/pomx-5.0.0.xsd\">\n"
-            + "</project>\n"), this::resolve);
+            + "</project>\n"), resolver);
 
         assertThat(pom.asString()).isEqualTo((XML
             + "\n<project " + NS + ">\n"
@@ -96,7 +94,7 @@ class ProjectObjectModelTest {
         ProjectObjectModel pom = ProjectObjectModel.from(XML
             + "<project>\n"
             + "    <modelVersion>4.0.0</modelVersion>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -107,7 +105,7 @@ class ProjectObjectModelTest {
         ProjectObjectModel pom = ProjectObjectModel.from(XML
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -120,7 +118,7 @@ class ProjectObjectModelTest {
         ProjectObjectModel pom = ProjectObjectModel.from(XML
             + "<project>\n"
             + "    <pom>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</pom>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -133,7 +131,7 @@ class ProjectObjectModelTest {
         ProjectObjectModel pom = ProjectObjectModel.from(XML
             + "<project>\n"
             + "    <war>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</war>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -148,7 +146,7 @@ class ProjectObjectModelTest {
                 + "<project>\n"
                 + "    <war>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</war>\n"
                 + "    <war>dummy-group2:dummy-artifact2:1.2.3-SNAPSHOT</war>\n"
-                + "</project>\n", this::resolve)
+                + "</project>\n", resolver)
             .asString());
 
         assertThat(throwable).hasMessageContaining("multiple packagings found");
@@ -159,7 +157,7 @@ class ProjectObjectModelTest {
             .from(XML
                 + "<project>\n"
                 + "    <war>dummy-group</war>\n"
-                + "</project>\n", this::resolve)
+                + "</project>\n", resolver)
             .asString());
 
         assertThat(throwable).hasMessageContaining("too few elements 1 in GAV expression: 'dummy-group'");
@@ -169,7 +167,7 @@ class ProjectObjectModelTest {
         ProjectObjectModel pom = ProjectObjectModel.from(XML
             + "<project>\n"
             + "    <war>dummy-group:dummy-artifact</war>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -183,7 +181,7 @@ class ProjectObjectModelTest {
         ProjectObjectModel pom = ProjectObjectModel.from(XML
             + "<project>\n"
             + "    <war>dummy-group:dummy-artifact:mac-os:1.2.3-SNAPSHOT</war>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -200,7 +198,7 @@ class ProjectObjectModelTest {
             .from(XML
                 + "<project>\n"
                 + "    <war>dummy-group:dummy-artifact:mac-os:1.2.3-SNAPSHOT:too-much</war>\n"
-                + "</project>\n", this::resolve)
+                + "</project>\n", resolver)
             .asString());
 
         assertThat(throwable).hasMessageContaining(
@@ -222,7 +220,7 @@ class ProjectObjectModelTest {
             + "            </plugin>\n"
             + "        </plugins>\n"
             + "    </build>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -256,7 +254,7 @@ class ProjectObjectModelTest {
             "            </plugin>\n"
             + "        </plugins>\n"
             + "    </build>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -290,7 +288,7 @@ class ProjectObjectModelTest {
             + "    <dependencyManagement>\n"
             + "        <pom>org.jboss.arquillian:arquillian-bom:1.1.11.Final</pom>\n"
             + "    </dependencyManagement>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -317,7 +315,7 @@ class ProjectObjectModelTest {
             + "            <jar>junit:junit:4.12</jar>\n"
             + "        </test>\n"
             + "    </dependencies>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -341,7 +339,7 @@ class ProjectObjectModelTest {
             + "            <jar>org.assertj:assertj-core:3.6.1</jar>\n"
             + "        </test>\n"
             + "    </dependencies>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -373,7 +371,7 @@ class ProjectObjectModelTest {
             + "            <jar>org.assertj:assertj-core:3.6.1</jar>\n"
             + "        </test>\n"
             + "    </dependencies>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -402,7 +400,7 @@ class ProjectObjectModelTest {
             + "            <pom>org.eclipse.microprofile:microprofile:2.2</pom>\n"
             + "        </provided>\n"
             + "    </dependencies>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -423,7 +421,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:dummy-profile:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -453,7 +451,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-license:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -496,7 +494,7 @@ class ProjectObjectModelTest {
             + "            <distribution>repo</distribution>\n"
             + "        </license>\n"
             + "    </licenses>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -538,7 +536,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-two-licenses:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -579,7 +577,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-repository:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -622,7 +620,7 @@ class ProjectObjectModelTest {
             + "            <name>other</name>\n"
             + "        </repository>\n"
             + "    </repositories>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -664,7 +662,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-two-repositories:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -702,7 +700,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-distributionManagement:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -739,7 +737,7 @@ class ProjectObjectModelTest {
             + "    <distributionManagement>\n"
             + "        <downloadUrl>http://some.where</downloadUrl>\n"
             + "    </distributionManagement>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -775,7 +773,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-scm:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -809,7 +807,7 @@ class ProjectObjectModelTest {
             + "    <scm>\n"
             + "        <url>http://some.where</url>\n"
             + "    </scm>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -842,7 +840,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-nested-profile:1.0</profile>"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -884,7 +882,7 @@ class ProjectObjectModelTest {
             + "<project>\n"
             + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
             + "    <profile>dummy-group:profile-with-nested-dependency-in-plugin:1.0</profile>\n"
-            + "</project>\n", this::resolve);
+            + "</project>\n", resolver);
 
         assertThat(pom.asString()).isEqualTo(HEAD
             + "    <modelVersion>4.0.0</modelVersion>\n"
@@ -943,4 +941,416 @@ class ProjectObjectModelTest {
             + "    </profiles>\n"
             + "</project>\n");
     }
+
+    private static final String LAZY_POMX = XML
+        + "<project>\n"
+        + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+        + "    <modules>\n"
+        + "        <module>sub-a</module>\n"
+        + "        <module>sub-b</module>\n"
+        + "    </modules>\n"
+        + "    <profile>dummy-group:profile-with-nested-dependency-in-plugin:1.0</profile>\n"
+        + "    <dependencies>\n"
+        + "        <test>\n"
+        + "            <jar>org.assertj:assertj-core:3.8.0</jar>\n"
+        + "        </test>\n"
+        + "    </dependencies>\n"
+        + "</project>\n";
+
+    private static final Resolver FAILING = new Resolver() {
+        @Override public Path resolve(GAV gav, String type) { throw new AssertionError("unexpected resolve " + gav); }
+
+        @Override public GAV resolveVersion(GAV gav) { throw new AssertionError("unexpected version resolve " + gav); }
+    };
+
+    @Test void shouldGetGavWithoutResolvingProfiles() {
+        ProjectObjectModel pom = ProjectObjectModel.from(LAZY_POMX, FAILING);
+
+        GAV gav = pom.getGav();
+
+        assertThat(gav).isEqualTo(GAV.split("dummy-group:dummy-artifact:1.2.3-SNAPSHOT"));
+    }
+
+    @Test void shouldGetModulesWithoutResolvingProfiles() {
+        ProjectObjectModel pom = ProjectObjectModel.from(LAZY_POMX, FAILING);
+
+        assertThat(pom.getModules()).containsExactly("sub-a", "sub-b");
+    }
+
+    @Test void shouldGetDependenciesIncludingExternalProfiles() {
+        ProjectObjectModel pom = ProjectObjectModel.from(LAZY_POMX, resolver);
+
+        assertThat(pom.getDependencies()).containsExactly(
+            GAV.split("org.assertj:assertj-core:3.8.0"),
+            GAV.split("org.junit.jupiter:junit-jupiter-api:5.6.0"));
+    }
+
+    @Test void shouldConvertTheSameAfterLazyAccess() {
+        String expected = ProjectObjectModel.from(LAZY_POMX, resolver).asString();
+        ProjectObjectModel pom = ProjectObjectModel.from(LAZY_POMX, resolver);
+        pom.getDependencies();
+        pom.getGav();
+
+        assertThat(pom.asString()).isEqualTo(expected);
+    }
+
+    @Test void shouldConvertTheSameWhenReleasingInput() {
+        String expected = ProjectObjectModel.from(LAZY_POMX, resolver).asString();
+        ProjectObjectModel pom = ProjectObjectModel.from(LAZY_POMX, resolver).releasingInput();
+
+        String xml = pom.asString();
+
+        assertThat(xml).isEqualTo(expected);
+        assertThat(pom.getModules()).containsExactly("sub-a", "sub-b");
+        assertThat(pom.getProfiles()).isNotEmpty().isEqualTo(ProjectObjectModel.from(LAZY_POMX, resolver).getProfiles());
+    }
+
+    @Test void shouldKeepCompletePomAsConsumerPomOfParent() {
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <pom>dummy-group:dummy-parent:1.2.3-SNAPSHOT</pom>\n"
+            + "    <properties>\n"
+            + "        <foo.version>2.0</foo.version>\n"
+            + "    </properties>\n"
+            + "    <build>\n"
+            + "        <plugins>\n"
+            + "            <plugin id=\"org.apache.maven.plugins:maven-jar-plugin:3.1.1\"/>\n"
+            + "        </plugins>\n"
+            + "    </build>\n"
+            + "    <profile>dummy-group:dummy-profile:1.0</profile>\n"
+            + "</project>\n", resolver);
+
+        assertThat(pom.hasConsumerPom()).isFalse();
+        assertThat(pom.asConsumerString()).isEqualTo(pom.asString()).contains("<foo.version>2.0</foo.version>",
+            "<artifactId>maven-jar-plugin</artifactId>", "<finalName>xxx</finalName>");
+    }
+
+    @Test void shouldReplaceDependencyWithExplicitDefaultsInConsumerPom(@TempDir Path tmp) throws Exception {
+        Path profile = tmp.resolve(GAV.split("dummy-group:profile-with-typed-dependency:1.0").asPath("xml"));
+        Files.createDirectories(profile.getParent());
+        Files.write(profile, (XML
+            + "<project>\n"
+            + "    <pom>dummy-group:profile-with-typed-dependency:1.0</pom>\n"
+            + "    <dependencies>\n"
+            + "        <dependency>\n"
+            + "            <groupId>dummy-group</groupId>\n"
+            + "            <artifactId>foo</artifactId>\n"
+            + "            <version>2.0</version>\n"
+            + "            <type>jar</type>\n"
+            + "            <classifier></classifier>\n"
+            + "        </dependency>\n"
+            + "    </dependencies>\n"
+            + "</project>\n").getBytes(UTF_8));
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <dependencies>\n"
+            + "        <compile>\n"
+            + "            <jar>dummy-group:foo:1.0</jar>\n"
+            + "        </compile>\n"
+            + "    </dependencies>\n"
+            + "    <profile>dummy-group:profile-with-typed-dependency:1.0</profile>\n"
+            + "</project>\n", new LocalRepositoryResolver(tmp));
+
+        String xml = pom.asConsumerString();
+
+        assertThat(xml).contains("<version>2.0</version>").doesNotContain("<version>1.0</version>");
+    }
+
+    @Test void shouldWriteConsumerPom() {
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <name>Dummy</name>\n"
+            + "\n"
+            + "    <properties>\n"
+            + "        <foo.version>2.0</foo.version>\n"
+            + "    </properties>\n"
+            + "\n"
+            + "    <build>\n"
+            + "        <plugins>\n"
+            + "            <plugin id=\"org.apache.maven.plugins:maven-jar-plugin:3.1.1\"/>\n"
+            + "        </plugins>\n"
+            + "    </build>\n"
+            + "\n"
+            + "    <dependencies>\n"
+            + "        <compile>\n"
+            + "            <jar>dummy-group:foo:${foo.version}</jar>\n"
+            + "            <jar>dummy-group:bar:${project.version}</jar>\n"
+            + "        </compile>\n"
+            + "        <provided>\n"
+            + "            <jar>javax:javaee-api:7.0</jar>\n"
+            + "        </provided>\n"
+            + "    </dependencies>\n"
+            + "\n"
+            + "    <profile>dummy-group:profile-with-dependencies:1.0</profile>\n"
+            + "</project>\n", resolver);
+
+        String xml = pom.asConsumerString();
+
+        assertThat(xml).isEqualTo(""
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" "
+            + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+            + "xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n"
+            + "    <!-- WARNING: Do Not Modify This File! -->\n"
+            + "    <!-- Generated from nil:-- -->\n"
+            + "    <modelVersion>4.0.0</modelVersion>\n"
+            + "    <groupId>dummy-group</groupId>\n"
+            + "    <artifactId>dummy-artifact</artifactId>\n"
+            + "    <version>1.2.3-SNAPSHOT</version>\n"
+            + "    <packaging>jar</packaging>\n"
+            + "    <name>Dummy</name>\n"
+            + "\n"
+            + "    <dependencies>\n"
+            + "        <dependency>\n"
+            + "            <groupId>dummy-group</groupId>\n"
+            + "            <artifactId>foo</artifactId>\n"
+            + "            <version>2.0</version>\n"
+            + "            <scope>compile</scope>\n"
+            + "        </dependency>\n"
+            + "        <dependency>\n"
+            + "            <groupId>dummy-group</groupId>\n"
+            + "            <artifactId>bar</artifactId>\n"
+            + "            <version>1.2.3-SNAPSHOT</version>\n"
+            + "            <scope>compile</scope>\n"
+            + "        </dependency>\n"
+            + "        <dependency>\n"
+            + "            <groupId>org.slf4j</groupId>\n"
+            + "            <artifactId>slf4j-api</artifactId>\n"
+            + "            <version>1.7.30</version>\n"
+            + "            <scope>compile</scope>\n"
+            + "        </dependency>\n"
+            + "    </dependencies>\n"
+            + "\n"
+            + "    <licenses>\n"
+            + "        <license>\n"
+            + "            <name>Apache License 2.0</name>\n"
+            + "        </license>\n"
+            + "    </licenses>\n"
+            + "</project>\n");
+        assertThat(pom.asString()).contains("<version>${foo.version}</version>", "<profiles>");
+    }
+
+    @Test void shouldKeepExclusionsInConsumerPom() {
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "\n"
+            + "    <properties>\n"
+            + "        <excluded.group>org.slf4j</excluded.group>\n"
+            + "    </properties>\n"
+            + "\n"
+            + "    <dependencies>\n"
+            + "        <dependency>\n"
+            + "            <groupId>dummy-group</groupId>\n"
+            + "            <artifactId>foo</artifactId>\n"
+            + "            <version>${project.version}</version>\n"
+            + "            <exclusions>\n"
+            + "                <exclusion>\n"
+            + "                    <groupId>${excluded.group}</groupId>\n"
+            + "                    <artifactId>slf4j-api</artifactId>\n"
+            + "                </exclusion>\n"
+            + "            </exclusions>\n"
+            + "        </dependency>\n"
+            + "    </dependencies>\n"
+            + "</project>\n", resolver);
+
+        String xml = pom.asConsumerString();
+
+        assertThat(xml).contains(""
+            + "    <dependencies>\n"
+            + "        <dependency>\n"
+            + "            <groupId>dummy-group</groupId>\n"
+            + "            <artifactId>foo</artifactId>\n"
+            + "            <version>1.2.3-SNAPSHOT</version>\n"
+            + "            <exclusions>\n"
+            + "                <exclusion>\n"
+            + "                    <groupId>org.slf4j</groupId>\n"
+            + "                    <artifactId>slf4j-api</artifactId>\n"
+            + "                </exclusion>\n"
+            + "            </exclusions>\n"
+            + "        </dependency>\n"
+            + "    </dependencies>\n");
+    }
+
+    @Test void shouldInlineExternalProfiles() {
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "\n"
+            + "    <properties>\n"
+            + "        <slf4j.version>1.7.0</slf4j.version>\n"
+            + "    </properties>\n"
+            + "\n"
+            + "    <build>\n"
+            + "        <finalName>own</finalName>\n"
+            + "    </build>\n"
+            + "\n"
+            + "    <dependencies>\n"
+            + "        <compile>\n"
+            + "            <jar>org.slf4j:slf4j-api:1.7.0</jar>\n"
+            + "        </compile>\n"
+            + "    </dependencies>\n"
+            + "\n"
+            + "    <profile>dummy-group:profile-with-dependencies:1.0</profile>\n"
+            + "    <profile>dummy-group:profile-with-nested-profile:1.0</profile>\n"
+            + "</project>\n", resolver).inliningProfiles();
+
+        String xml = pom.asString();
+
+        assertThat(xml).endsWith(""
+            + "    <modelVersion>4.0.0</modelVersion>\n"
+            + "    <groupId>dummy-group</groupId>\n"
+            + "    <artifactId>dummy-artifact</artifactId>\n"
+            + "    <version>1.2.3-SNAPSHOT</version>\n"
+            + "    <packaging>jar</packaging>\n"
+            + "\n"
+            + "    <properties>\n"
+            + "        <slf4j.version>1.7.30</slf4j.version>\n"
+            + "        <dummy-group.profile-with-dependencies.version>1.0</dummy-group.profile-with-dependencies.version>\n"
+            + "        <dummy-group.profile-with-nested-profile.version>1.0</dummy-group.profile-with-nested-profile.version>\n"
+            + "        <dummy-group.dummy-profile.version>1.0</dummy-group.dummy-profile.version>\n"
+            + "    </properties>\n"
+            + "\n"
+            + "    <build>\n"
+            + "        <finalName>xxx</finalName>\n"
+            + "    </build>\n"
+            + "\n"
+            + "    <dependencies>\n"
+            + "        <dependency>\n"
+            + "            <groupId>org.slf4j</groupId>\n"
+            + "            <artifactId>slf4j-api</artifactId>\n"
+            + "            <version>${slf4j.version}</version>\n"
+            + "            <scope>compile</scope>\n"
+            + "        </dependency>\n"
+            + "        <dependency>\n"
+            + "            <groupId>org.junit.jupiter</groupId>\n"
+            + "            <artifactId>junit-jupiter-api</artifactId>\n"
+            + "            <version>5.6.0</version>\n"
+            + "            <scope>test</scope>\n"
+            + "        </dependency>\n"
+            + "    </dependencies>\n"
+            + "\n"
+            + "    <licenses>\n"
+            + "        <license>\n"
+            + "            <name>Apache License 2.0</name>\n"
+            + "        </license>\n"
+            + "    </licenses>\n"
+            + "</project>\n");
+        assertThat(pom.getExpandedProfiles()).hasSize(3);
+    }
+
+    @Test void shouldInlineExternalProfilesIndependentOfTheOrderOfTheGetters() {
+        String pomx = XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "\n"
+            + "    <build>\n"
+            + "        <plugins>\n"
+            + "            <plugin>org.apache.maven.plugins:maven-surefire-plugin:3.0.0</plugin>\n"
+            + "        </plugins>\n"
+            + "    </build>\n"
+            + "\n"
+            + "    <dependencies>\n"
+            + "        <compile>\n"
+            + "            <jar>org.slf4j:slf4j-api:1.7.0</jar>\n"
+            + "        </compile>\n"
+            + "    </dependencies>\n"
+            + "\n"
+            + "    <profile>dummy-group:profile-with-dependencies:1.0</profile>\n"
+            + "    <profile>dummy-group:profile-with-nested-dependency-in-plugin:1.0</profile>\n"
+            + "</project>\n";
+        String expected = ProjectObjectModel.from(pomx, resolver).inliningProfiles().asString();
+
+        ProjectObjectModel profilesFirst = ProjectObjectModel.from(pomx, resolver).inliningProfiles();
+        profilesFirst.getExpandedProfiles();
+        profilesFirst.getDependencies();
+        ProjectObjectModel coordinatesFirst = ProjectObjectModel.from(pomx, resolver).inliningProfiles();
+        coordinatesFirst.getGav();
+        coordinatesFirst.getBuildDependencies(true);
+
+        assertThat(profilesFirst.asString()).isEqualTo(expected);
+        assertThat(coordinatesFirst.asString()).isEqualTo(expected);
+    }
+
+    @Test void shouldResolveAllProfilesOfDocumentInOneBatch() {
+        List<List<GAV>> batches = new ArrayList<>();
+        Resolver resolver = new LocalRepositoryResolver(TEST_REPO) {
+            @Override public Path resolve(GAV gav, String type) { return FAILING.resolve(gav, type); }
+
+            @Override public List<Path> resolveAll(Collection<GAV> gavs, String type) {
+                batches.add(new ArrayList<>(gavs));
+                return gavs.stream().map(gav -> TEST_REPO.resolve(gav.asPath(type))).collect(toList());
+            }
+        };
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <profile>dummy-group:profile-with-license:1.0</profile>\n"
+            + "    <profile>dummy-group:profile-with-scm:1.0</profile>\n"
+            + "</project>\n", resolver);
+
+        String xml = pom.asString();
+
+        assertThat(batches).containsExactly(asList(
+            GAV.split("dummy-group:profile-with-license:1.0"),
+            GAV.split("dummy-group:profile-with-scm:1.0")));
+        assertThat(xml).contains("<id>dummy-group:profile-with-license</id>", "<id>dummy-group:profile-with-scm</id>");
+    }
+
+    @Test void shouldResolveVersionRangeOfExternalProfile() {
+        Resolver resolver = new LocalRepositoryResolver(TEST_REPO) {
+            @Override public GAV resolveVersion(GAV gav) {
+                assertThat(gav.getVersion()).isEqualTo("[1.0,2.0)");
+                return gav.withVersion("1.0");
+            }
+        };
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <profile>dummy-group:dummy-profile:[1.0,2.0)</profile>\n"
+            + "</project>\n", resolver);
+
+        assertThat(pom.asString()).contains(
+            "<dummy-group.dummy-profile.version>1.0</dummy-group.dummy-profile.version>",
+            "<finalName>xxx</finalName>");
+    }
+
+    @Test void shouldResolveLatestVersionFromLocalRepository(@TempDir Path tmp) throws Exception {
+        for (String version : asList("1.0", "1.1", "1.2-SNAPSHOT")) {
+            Path profile = tmp.resolve(GAV.split("dummy-group:dummy-profile:" + version).asPath("xml"));
+            Files.createDirectories(profile.getParent());
+            Files.copy(TEST_REPO.resolve(GAV.split("dummy-group:dummy-profile:1.0").asPath("xml")), profile);
+        }
+        ProjectObjectModel pom = ProjectObjectModel.from(XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <profile>dummy-group:dummy-profile:LATEST</profile>\n"
+            + "</project>\n", new LocalRepositoryResolver(tmp));
+
+        assertThat(pom.asString()).contains(
+            "<dummy-group.dummy-profile.version>1.2-SNAPSHOT</dummy-group.dummy-profile.version>",
+            "<finalName>xxx</finalName>");
+    }
+
+    @Test void shouldPreferExpandedVariantOfProfile(@TempDir Path tmp) throws Exception {
+        GAV profile = GAV.split("dummy-group:profile-with-nested-profile:1.0");
+        Path copy = tmp.resolve(profile.asPath("xml"));
+        Files.createDirectories(copy.getParent());
+        Files.copy(TEST_REPO.resolve(profile.asPath("xml")), copy);
+        ProjectObjectModel.readFrom(copy, resolver).writeExpandedTo(tmp.resolve(profile.withClassifier("expanded").asPath("xml")));
+        String pomx = XML
+            + "<project>\n"
+            + "    <jar>dummy-group:dummy-artifact:1.2.3-SNAPSHOT</jar>\n"
+            + "    <profile>dummy-group:profile-with-nested-profile:1.0</profile>"
+            + "</project>\n";
+        // only the profile itself is in the temp repository, not the nested dummy-profile
+        ProjectObjectModel pom = ProjectObjectModel.from(pomx, new LocalRepositoryResolver(tmp));
+
+        String xml = pom.asString();
+
+        assertThat(xml).isEqualTo(ProjectObjectModel.from(pomx, resolver).asString());
+        assertThat(pom.getExpandedProfiles()).containsExactly(profile, GAV.split("dummy-group:dummy-profile:1.0"));
+    }
 }
@@ -0,0 +1,142 @@
+package com.github.t1.pomx;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates synthetic reactors for scalability tests: a root <code>pomx.xml</code> with many modules,
+ * each with a long list of dependencies and references to external profiles
+ * that form a deep chain and a diamond-shaped graph, stored in a local repository next to the modules.
+ */
+class ReactorGenerator {
+    static final String GROUP = "generated";
+
+    private final Path root;
+    private int modules = 10;
+    private int dependencies = 10;
+    private int plugins = 2;
+    private int chainDepth = 0;
+    private int diamondDepth = 0;
+
+    ReactorGenerator(Path root) { this.root = root; }
+
+    ReactorGenerator withModules(int modules) {
+        this.modules = modules;
+        return this;
+    }
+
+    ReactorGenerator withDependencies(int dependencies) {
+        this.dependencies = dependencies;
+        return this;
+    }
+
+    ReactorGenerator withPlugins(int plugins) {
+        this.plugins = plugins;
+        return this;
+    }
+
+    /** every module references the first profile of a chain, where each profile references the next one */
+    ReactorGenerator withChainDepth(int chainDepth) {
+        this.chainDepth = chainDepth;
+        return this;
+    }
+
+    /** every module references the top of a diamond graph, where both profiles of a level reference both of the next */
+    ReactorGenerator withDiamondDepth(int diamondDepth) {
+        this.diamondDepth = diamondDepth;
+        return this;
+    }
+
+    Path repository() { return root.resolve("repository"); }
+
+    Resolver resolver() {
+        return new LocalRepositoryResolver(repository());
+    }
+
+    /** @return the pomx files of the modules */
+    List<Path> generate() {
+        List<Path> pomxs = new ArrayList<>();
+        StringBuilder moduleList = new StringBuilder();
+        for (int i = 0; i < modules; i++) {
+            pomxs.add(writeModule(root.resolve(module(i)).resolve("pomx.xml"), module(i)));
+            moduleList.append("        <module>").append(module(i)).append("</module>\n");
+        }
+        write(root.resolve("pomx.xml"), ""
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<project xmlns=\"urn:xsd:maven:pomx:5.0.0\">\n"
+            + "    <pom>" + GROUP + ":root:1.0</pom>\n"
+            + "    <modules>\n" + moduleList + "    </modules>\n"
+            + "</project>\n");
+        for (int level = 0; level < chainDepth; level++)
+            profile("chain-" + level, (level + 1 < chainDepth) ? profileRef("chain-" + (level + 1)) : "");
+        for (int level = 0; level < diamondDepth; level++)
+            for (String side : new String[]{"left", "right"})
+                profile("diamond-" + level + "-" + side, (level + 1 < diamondDepth)
+                    ? profileRef("diamond-" + (level + 1) + "-left") + profileRef("diamond-" + (level + 1) + "-right")
+                    : "");
+        return pomxs;
+    }
+
+    private static String module(int i) { return String.format("module-%04d", i); }
+
+    private static String profileRef(String artifactId) {
+        return "    <profile>" + GROUP + ":" + artifactId + ":1.0</profile>\n";
+    }
+
+    private Path writeModule(Path pomx, String module) {
+        StringBuilder out = new StringBuilder();
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+        out.append("<project xmlns=\"urn:xsd:maven:pomx:5.0.0\">\n");
+        out.append("    <jar>").append(GROUP).append(":").append(module).append(":1.0</jar>\n");
+        out.append("    <build>\n        <plugins>\n");
+        for (int i = 0; i < plugins; i++)
+            out.append("            <plugin id=\"").append(GROUP).append(":plugin-").append(i).append(":1.0\">\n")
+                .append("                <configuration>\n")
+                .append("                    <setting>").append(i).append("</setting>\n")
+                .append("                </configuration>\n")
+                .append("            </plugin>\n");
+        out.append("        </plugins>\n    </build>\n");
+        if (chainDepth > 0)
+            out.append(profileRef("chain-0"));
+        if (diamondDepth > 0)
+            out.append(profileRef("diamond-0-left"));
+        out.append("    <dependencies>\n        <compile>\n");
+        for (int i = 0; i < dependencies; i++)
+            out.append("            <jar>").append(GROUP).append(":lib-").append(i).append(":1.0</jar>\n");
+        out.append("        </compile>\n    </dependencies>\n");
+        out.append("</project>\n");
+        return write(pomx, out.toString());
+    }
+
+    private void profile(String artifactId, String nested) {
+        write(repository().resolve(new GAV(GROUP, artifactId, null, "1.0").asPath("xml")), ""
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<project xmlns=\"urn:xsd:maven:pomx:5.0.0\">\n"
+            + "    <pom>" + GROUP + ":" + artifactId + ":1.0</pom>\n"
+            + nested
+            + "    <properties>\n"
+            + "        <" + artifactId + ">true</" + artifactId + ">\n"
+            + "    </properties>\n"
+            + "    <dependencies>\n"
+            + "        <test>\n"
+            + "            <jar>" + GROUP + ":" + artifactId + "-test-lib:1.0</jar>\n"
+            + "        </test>\n"
+            + "    </dependencies>\n"
+            + "</project>\n");
+    }
+
+    private static Path write(Path path, String content) {
+        try {
+            Files.createDirectories(path.getParent());
+            return Files.write(path, content.getBytes(UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
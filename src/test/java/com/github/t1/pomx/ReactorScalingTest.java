@@ -0,0 +1,101 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Converts generated reactors of growing size and checks that the conversion time and the allocated heap
+ * grow roughly linearly. The bounds are generous, so they catch quadratic hotspots but not noise.
+ * Wall-clock time still depends on the JIT, the GC, and the load of the machine, and the runs take a while,
+ * so they are not part of the normal build; run them with <code>mvn test -Pscaling</code>.
+ */
+@Tag("scaling")
+class ReactorScalingTest {
+    /** doubling the input may cost up to this factor; quadratic growth would be 4 */
+    private static final double MAX_ALLOCATION_RATIO = 2.6;
+    private static final double MAX_TIME_RATIO = 3.2;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @TempDir Path tmp;
+
+    @BeforeAll static void checkAllocationMeasurement() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "thread allocation measurement not supported");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static class Measurement {
+        long nanos = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+
+        @Override public String toString() { return (nanos / 1_000_000) + "ms/" + (bytes / 1024) + "KiB"; }
+    }
+
+    /** the best of a few runs, so a GC pause or JIT compilation doesn't count */
+    private Measurement convert(String name, Function<ReactorGenerator, ReactorGenerator> setup) {
+        ReactorGenerator generator = setup.apply(new ReactorGenerator(tmp.resolve(name)));
+        List<Path> pomxs = generator.generate();
+        Resolver resolver = generator.resolver();
+        Measurement measurement = new Measurement();
+        long thread = Thread.currentThread().getId();
+        for (int run = 0; run < 3; run++) {
+            long bytes = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (Path pomx : pomxs)
+                assertThat(ProjectObjectModel.readFrom(pomx, resolver).asString()).contains("<project");
+            measurement.nanos = Math.min(measurement.nanos, System.nanoTime() - start);
+            measurement.bytes = Math.min(measurement.bytes, THREADS.getThreadAllocatedBytes(thread) - bytes);
+        }
+        return measurement;
+    }
+
+    private void assertLinear(Function<ReactorGenerator, ReactorGenerator> small,
+                              Function<ReactorGenerator, ReactorGenerator> large) {
+        convert("warmup", small);
+        Measurement one = convert("small", small);
+        Measurement two = convert("large", large);
+
+        assertThat((double) two.bytes / one.bytes)
+            .describedAs("allocation growth from " + one + " to " + two)
+            .isLessThan(MAX_ALLOCATION_RATIO);
+        assertThat((double) two.nanos / one.nanos)
+            .describedAs("time growth from " + one + " to " + two)
+            .isLessThan(MAX_TIME_RATIO);
+    }
+
+
+    @Test void shouldScaleLinearlyWithModules() {
+        assertLinear(
+            reactor -> reactor.withModules(25).withChainDepth(3).withDiamondDepth(2),
+            reactor -> reactor.withModules(50).withChainDepth(3).withDiamondDepth(2));
+    }
+
+    @Test void shouldScaleLinearlyWithDependencies() {
+        assertLinear(
+            reactor -> reactor.withModules(5).withDependencies(500),
+            reactor -> reactor.withModules(5).withDependencies(1000));
+    }
+
+    @Test void shouldScaleLinearlyWithPlugins() {
+        assertLinear(
+            reactor -> reactor.withModules(5).withPlugins(200),
+            reactor -> reactor.withModules(5).withPlugins(400));
+    }
+
+    @Test void shouldScaleLinearlyWithProfileChainDepth() {
+        assertLinear(
+            reactor -> reactor.withModules(5).withChainDepth(8),
+            reactor -> reactor.withModules(5).withChainDepth(16));
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RemoteCacheTest {
+    private final StandInCacheServer server = new StandInCacheServer();
+
+    RemoteCacheTest() throws Exception {}
+
+    @AfterEach void tearDown() { server.close(); }
+
+    @Test void shouldPutAndGet() {
+        RemoteCache cache = server.client();
+        String key = RemoteCache.key("foo".getBytes(UTF_8));
+
+        assertThat(cache.get(key)).isEmpty();
+        cache.put(key, "bar".getBytes(UTF_8));
+
+        assertThat(cache.get(key)).hasValueSatisfying(bytes -> assertThat(new String(bytes, UTF_8)).isEqualTo("bar"));
+        assertThat(cache.isEnabled()).isTrue();
+    }
+
+    @Test void shouldDisableAfterTimeout() {
+        server.delayMillis = 2000;
+        RemoteCache cache = new RemoteCache(server.url(), 200);
+
+        long start = System.nanoTime();
+        assertThat(cache.get("key")).isEmpty();
+        cache.put("key", new byte[]{1});
+        assertThat(cache.get("key")).isEmpty();
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1500);
+        assertThat(cache.isEnabled()).isFalse();
+    }
+
+    @Test void shouldDisableWhenServerIsDown() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RemoteCache cache = new RemoteCache("http://localhost:" + port + "/cache/", 200);
+
+        assertThat(cache.get("key")).isEmpty();
+
+        assertThat(cache.isEnabled()).isFalse();
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.t1.pomx;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** A minimal in-memory HTTP server for the {@link RemoteCache} */
+class StandInCacheServer implements AutoCloseable {
+    final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    final AtomicInteger gets = new AtomicInteger();
+    final AtomicInteger puts = new AtomicInteger();
+    volatile int delayMillis;
+
+    private final HttpServer server;
+
+    StandInCacheServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/cache/", this::handle);
+        server.start();
+    }
+
+    String url() { return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/cache"; }
+
+    RemoteCache client() { return new RemoteCache(url(), 1000); }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        sleep();
+        String key = exchange.getRequestURI().getPath().substring("/cache/".length());
+        switch (exchange.getRequestMethod()) {
+        case "GET":
+            gets.incrementAndGet();
+            byte[] entry = entries.get(key);
+            if (entry == null)
+                respond(exchange, 404, "not found".getBytes(UTF_8));
+            else
+                respond(exchange, 200, entry);
+            break;
+        case "PUT":
+            puts.incrementAndGet();
+            entries.put(key, readAll(exchange.getRequestBody()));
+            respond(exchange, 201, "created".getBytes(UTF_8));
+            break;
+        default:
+            respond(exchange, 405, "method not allowed".getBytes(UTF_8));
+        }
+    }
+
+    /** always with a body: the JDK server breaks the keep-alive connection for responses without one */
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) >= 0; )
+            out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    @Override public void close() { server.stop(0); }
+}
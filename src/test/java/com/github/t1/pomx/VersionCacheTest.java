@@ -0,0 +1,80 @@
+package com.github.t1.pomx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionCacheTest {
+    private static final Path REPOSITORY = Paths.get("repository");
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong();
+
+    private Function<GAV, String> read(String version) {
+        return gav -> {
+            reads.incrementAndGet();
+            return version;
+        };
+    }
+
+    private VersionCache cache() {
+        VersionCache cache = new VersionCache();
+        cache.clock = now::get;
+        cache.ttl = SECONDS.toNanos(10);
+        return cache;
+    }
+
+    @Test void shouldReadMetadataOncePerBuild() {
+        GAV gav = GAV.split("version-cache-test:per-build:[1.0,2.0)");
+        VersionCache cache = cache();
+
+        assertThat(cache.get(REPOSITORY, gav, read("1.1"))).isEqualTo("1.1");
+        now.addAndGet(SECONDS.toNanos(20));
+        assertThat(cache.get(REPOSITORY, gav, read("1.2"))).isEqualTo("1.1");
+
+        assertThat(reads).hasValue(1);
+    }
+
+    @Test void shouldShareVersionsBetweenBuildsInTheSameJvm() {
+        GAV gav = GAV.split("version-cache-test:per-jvm:RELEASE");
+        VersionCache first = cache();
+        VersionCache second = cache();
+
+        assertThat(first.get(REPOSITORY, gav, read("1.1"))).isEqualTo("1.1");
+        first.endBuild();
+        assertThat(first.get(REPOSITORY, gav, read("1.2"))).isEqualTo("1.1");
+        assertThat(second.get(REPOSITORY, gav, read("1.2"))).isEqualTo("1.1");
+
+        assertThat(reads).hasValue(1);
+    }
+
+    @Test void shouldReadMetadataAgainWhenExpiredForNextBuild() {
+        GAV gav = GAV.split("version-cache-test:expired:LATEST");
+        VersionCache cache = cache();
+        cache.get(REPOSITORY, gav, read("1.1"));
+
+        cache.endBuild();
+        now.addAndGet(SECONDS.toNanos(20));
+
+        assertThat(cache.get(REPOSITORY, gav, read("1.2"))).isEqualTo("1.2");
+        assertThat(reads).hasValue(2);
+    }
+
+    @Test void shouldNotShareVersionsBetweenRepositories() {
+        GAV gav = GAV.split("version-cache-test:per-repository:RELEASE");
+        VersionCache first = cache();
+        VersionCache second = cache();
+
+        assertThat(first.get(REPOSITORY, gav, read("1.1"))).isEqualTo("1.1");
+        assertThat(second.get(Paths.get("other-repository"), gav, read("1.2"))).isEqualTo("1.2");
+
+        assertThat(reads).hasValue(2);
+    }
+}
@@ -0,0 +1,35 @@
+#!/bin/sh
+# Measures the time to the first converted POM of a one-module conversion, as in a git hook,
+# with and without the class data sharing archive: run `mvn package -Pcds` first.
+# usage: src/test/scripts/startup-benchmark.sh [runs]
+set -e
+runs=${1:-10}
+target=$(cd "$(dirname "$0")/../../../target" && pwd)
+[ -f "$target/pomx.jsa" ] || { echo "no $target/pomx.jsa: run mvn package -Pcds" >&2; exit 1; }
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+cp "$target/../src/test/cds/pomx.xml" "$work/"
+repository="$target/../src/test/resources/repository"
+
+# the median wall clock time in ms of the command
+median() {
+    for i in $(seq "$runs"); do
+        rm -f "$work/pom.xml"
+        start=$(date +%s%N)
+        "$@" convert --repository "$repository" "$work" > /dev/null
+        end=$(date +%s%N)
+        [ -f "$work/pom.xml" ] || { echo "no pom.xml converted by $*" >&2; exit 1; }
+        echo $(( (end - start) / 1000000 ))
+    done | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)] }'
+}
+
+cache="-Dpomx.profile-cache=$work/cache"
+without=$(median java -Xshare:off "$cache" -jar "$target/pomx.jar")
+jdk=$(median java "$cache" -jar "$target/pomx.jar")
+with=$(median java -XX:SharedArchiveFile="$target/pomx.jsa" "$cache" -jar "$target/pomx.jar")
+launcher=$(median env POMX_OPTS="$cache" sh "$target/pomx")
+echo "median of $runs runs to the first converted POM:"
+echo "  without class data sharing:     ${without} ms"
+echo "  with the JDK's default archive: ${jdk} ms"
+echo "  with the pomx archive:          ${with} ms"
+echo "  with the launcher (incl. C1):   ${launcher} ms"